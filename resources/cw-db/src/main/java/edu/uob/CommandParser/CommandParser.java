@@ -12,10 +12,14 @@ public abstract class CommandParser {
             return new CreateCommandParser();
         } else if (upperCommand.startsWith("CREATE TABLE ")) {
             return new CreateCommandParser();
+        } else if (upperCommand.startsWith("CREATE INDEX ")) {
+            return new IndexCommandParser();
         } else if (upperCommand.startsWith("DROP DATABASE ")) {
             return new DropCommandParser();
         } else if (upperCommand.startsWith("DROP TABLE ")) {
             return new DropCommandParser();
+        } else if (upperCommand.startsWith("DROP INDEX ")) {
+            return new IndexCommandParser();
         } else if (upperCommand.startsWith("ALTER TABLE ")) {
             return new AlterCommandParser();
         } else if (upperCommand.startsWith("INSERT INTO ")) {
@@ -28,6 +32,8 @@ public abstract class CommandParser {
             return new DeleteCommandParser();
         } else if (upperCommand.startsWith("JOIN ")) {
             return new JoinCommandParser();
+        } else if (upperCommand.equals("FLUSH")) {
+            return new FlushCommandParser();
         }
 
         return null;
@@ -0,0 +1,12 @@
+package edu.uob.CommandParser;
+
+import java.util.regex.Pattern;
+
+public class FlushCommandParser extends CommandParser {
+
+    @Override
+    public boolean parseCommand(String command) {
+        commandType = "FLUSH";
+        return Pattern.compile("\\s*FLUSH\\s*", Pattern.CASE_INSENSITIVE).matcher(command).matches();
+    }
+}
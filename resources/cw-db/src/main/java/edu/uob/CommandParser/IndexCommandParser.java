@@ -0,0 +1,42 @@
+package edu.uob.CommandParser;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class IndexCommandParser extends CommandParser {
+    private String tableName;
+    private String columnName;
+    private String indexType;
+
+    @Override
+    public boolean parseCommand(String command) {
+        Pattern pattern = Pattern.compile("\\s*(CREATE|DROP)\\s+INDEX\\s+ON\\s+([a-zA-Z0-9]+)\\s*\\(\\s*([a-zA-Z0-9]+)\\s*\\)"
+                + "(?:\\s+USING\\s+([a-zA-Z]+))?\\s*",
+                Pattern.CASE_INSENSITIVE);
+        Matcher matcher = pattern.matcher(command);
+        if (matcher.matches()) {
+            commandType = matcher.group(1).toUpperCase() + " INDEX";
+            tableName = matcher.group(2).toLowerCase();
+            columnName = matcher.group(3).toLowerCase();
+            indexType = matcher.group(4) == null ? "AUTO" : matcher.group(4).toUpperCase();
+            // DROP INDEX removes whatever kind of index the column has
+            return commandType.equals("CREATE INDEX") || matcher.group(4) == null;
+        }
+        return false;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    /**
+     * The kind named by USING, or AUTO to let the table choose between HASH and BITMAP
+     */
+    public String getIndexType() {
+        return indexType;
+    }
+}
@@ -198,6 +198,11 @@ public class DBServer {
                     return handleDropCommand((DropCommandParser) parser);
                 case "JOIN":
                     return handleJoinCommand((JoinCommandParser) parser);
+                case "CREATE INDEX":
+                case "DROP INDEX":
+                    return handleIndexCommand((IndexCommandParser) parser);
+                case "FLUSH":
+                    return databases.flush();
                 default:
                     return "[ERROR] Unsupported command type: " + cmdType;
             }
@@ -328,15 +333,34 @@ public class DBServer {
         }
     }
 
+    private String handleIndexCommand(IndexCommandParser parser) {
+        if (currentDatabase == null) {
+            return "[ERROR] No database selected.";
+        }
+        if (parser.getCommandType().equals("CREATE INDEX")) {
+            return currentDatabase.createIndex(parser.getTableName(), parser.getColumnName(), parser.getIndexType());
+        }
+        return currentDatabase.dropIndex(parser.getTableName(), parser.getColumnName());
+    }
+
     private boolean needsDatabaseSelected(String cmdType) {
         return !cmdType.equals("USE") &&
                 !cmdType.equals("CREATE DATABASE") &&
-                !cmdType.equals("DROP DATABASE");
+                !cmdType.equals("DROP DATABASE") &&
+                !cmdType.equals("FLUSH");
     }
 
 
     //  === Methods below handle networking aspects of the project - you will not need to change these ! ===
 
+    /**
+     * Close every database and stop the background flushes and checkpoints
+     */
+    public void close() {
+        databases.close();
+        currentDatabase = null;
+    }
+
     public void blockingListenOn(int portNumber) throws IOException {
         try (ServerSocket s = new ServerSocket(portNumber)) {
             System.out.println("Server listening on port " + portNumber);
@@ -349,6 +373,8 @@ public class DBServer {
                     System.err.println("Continuing...");
                 }
             }
+        } finally {
+            close();
         }
     }
 
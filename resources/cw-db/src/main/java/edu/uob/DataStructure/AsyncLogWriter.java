@@ -0,0 +1,139 @@
+package edu.uob.DataStructure;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Single background thread that writes table log records to disk.
+ *
+ * <p>Statements only put their records on a bounded queue, so the time spent in
+ * {@code write()} stays off the request path; a full queue makes the next statement
+ * wait instead of letting memory grow. Whether the statement then also waits for
+ * an fsync is decided by the {@link PersistenceManager}. {@link #await()} returns
+ * once everything queued before it has been written.
+ */
+public final class AsyncLogWriter {
+    private static final int MAX_BATCH = 256;
+
+    private static AsyncLogWriter shared;
+
+    private final BlockingQueue<Entry> queue;
+    private volatile long lastLagNanos;
+
+    private AsyncLogWriter(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        Thread thread = new Thread(this::run, "table-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * The writer used by every table log, its queue holds db.flushQueueCapacity records
+     */
+    public static synchronized AsyncLogWriter shared() {
+        if (shared == null) {
+            shared = new AsyncLogWriter(StorageConfig.flushQueueCapacity());
+        }
+        return shared;
+    }
+
+    // A record for a log, or a barrier when log is null
+    private static final class Entry {
+        private final TableLog log;
+        private final String record;
+        private final CompletableFuture<Void> barrier;
+        private final long enqueuedAt;
+
+        private Entry(TableLog log, String record, CompletableFuture<Void> barrier) {
+            this.log = log;
+            this.record = record;
+            this.barrier = barrier;
+            this.enqueuedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Queue a record, blocking while the queue is full
+     */
+    public void write(TableLog log, String record) throws IOException {
+        put(new Entry(log, record, null));
+    }
+
+    /**
+     * Wait until every record queued so far has been written
+     */
+    public void await() throws IOException {
+        CompletableFuture<Void> barrier = new CompletableFuture<>();
+        put(new Entry(null, null, barrier));
+        try {
+            barrier.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the log writer", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Log writer failed", e.getCause());
+        }
+    }
+
+    private void put(Entry entry) throws IOException {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queueing a log record", e);
+        }
+    }
+
+    /**
+     * Records and barriers waiting for the writer thread
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * How long the oldest waiting record has been queued, 0 when the queue is empty
+     */
+    public long getLagMillis() {
+        Entry oldest = queue.peek();
+        return oldest == null ? 0 : (System.nanoTime() - oldest.enqueuedAt) / 1_000_000;
+    }
+
+    /**
+     * Time between queueing and writing for the most recently written record
+     */
+    public long getLastWriteLagMillis() {
+        return lastLagNanos / 1_000_000;
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            for (Entry entry : batch) {
+                if (entry.log == null) {
+                    entry.barrier.complete(null);
+                    continue;
+                }
+                try {
+                    entry.log.writeRecord(entry.record);
+                } catch (IOException | RuntimeException e) {
+                    // The log rejects everything after this until it is rewritten
+                    entry.log.failed(e);
+                }
+                lastLagNanos = System.nanoTime() - entry.enqueuedAt;
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package edu.uob.DataStructure;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One bit set of slots per distinct value, for columns with only a few values
+ * such as TRUE/FALSE flags. == and != come straight from the bit sets, and the
+ * table combines them with AND and OR by intersection and union.
+ */
+class BitmapIndex implements ColumnIndex {
+    static final String TYPE = "BITMAP";
+
+    // Keys are case-folded like HashIndex keys
+    private final Map<String, BitSet> slotsByKey = new HashMap<>();
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public void add(int slot, String value) {
+        if (value.equals("NULL")) {
+            return;
+        }
+        slotsByKey.computeIfAbsent(HashIndex.fold(value), key -> new BitSet()).set(slot);
+    }
+
+    @Override
+    public void remove(int slot, String value) {
+        String key = HashIndex.fold(value);
+        BitSet slots = slotsByKey.get(key);
+        if (slots == null) {
+            return;
+        }
+        slots.clear(slot);
+        if (slots.isEmpty()) {
+            slotsByKey.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        slotsByKey.clear();
+    }
+
+    @Override
+    public BitSet find(String operator, String value) {
+        BitSet result = new BitSet();
+        if (!operator.equals("==") && !operator.equals("!=")) {
+            return null;
+        }
+        if (value.equals("NULL")) {
+            return result;
+        }
+        String key = HashIndex.fold(value);
+        if (operator.equals("==")) {
+            BitSet slots = slotsByKey.get(key);
+            if (slots != null) {
+                result.or(slots);
+            }
+            return result;
+        }
+        for (Map.Entry<String, BitSet> entry : slotsByKey.entrySet()) {
+            if (!entry.getKey().equals(key) && comparable(entry.getKey(), value)) {
+                result.or(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    // A number never compares to text other than TRUE/FALSE; folding keeps both properties
+    private static boolean comparable(String cell, String value) {
+        boolean cellIsNumber = ColumnType.isNumeric(cell);
+        boolean valueIsNumber = ColumnType.isNumeric(value);
+        return !(cellIsNumber && !valueIsNumber && !isBoolean(value))
+                && !(valueIsNumber && !cellIsNumber && !isBoolean(cell));
+    }
+
+    private static boolean isBoolean(String value) {
+        return value.equalsIgnoreCase("TRUE") || value.equalsIgnoreCase("FALSE");
+    }
+}
@@ -0,0 +1,134 @@
+package edu.uob.DataStructure;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fixed number of in-memory page frames shared by every paged table.
+ *
+ * <p>A page is {@link #pin pinned} while it is being read or written and cannot be
+ * evicted until it is {@link #unpin unpinned}. When every frame is taken the CLOCK
+ * algorithm picks the victim: the hand skips pinned frames and gives recently used
+ * frames a second chance, and a dirty victim is written back before its frame is reused.
+ */
+public class BufferPool {
+    public static final int PAGE_SIZE = 8192;
+
+    private static BufferPool shared;
+
+    private final Page[] frames;
+    // Resident pages by file id and page number
+    private final Map<Long, Page> residentPages;
+    private int clockHand;
+
+    public BufferPool(int capacity) {
+        this.frames = new Page[Math.max(1, capacity)];
+        this.residentPages = new HashMap<>();
+    }
+
+    /**
+     * The pool used by all paged tables, sized by db.bufferPoolPages
+     */
+    public static synchronized BufferPool shared() {
+        if (shared == null) {
+            shared = new BufferPool(StorageConfig.bufferPoolPages());
+        }
+        return shared;
+    }
+
+    /**
+     * One frame of the pool. The data array is reused when the frame gets another page.
+     */
+    public static final class Page {
+        private final byte[] data = new byte[PAGE_SIZE];
+        private PageFile file;
+        private int pageNumber;
+        private int pinCount;
+        private boolean dirty;
+        private boolean referenced;
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Bring a page into the pool and keep it there until it is unpinned
+     */
+    public synchronized Page pin(PageFile file, int pageNumber) throws IOException {
+        Page page = residentPages.get(key(file, pageNumber));
+        if (page == null) {
+            page = evict();
+            file.readPage(pageNumber, page.data);
+            page.file = file;
+            page.pageNumber = pageNumber;
+            page.dirty = false;
+            residentPages.put(key(file, pageNumber), page);
+        }
+        page.pinCount++;
+        page.referenced = true;
+        return page;
+    }
+
+    public synchronized void unpin(Page page, boolean dirty) {
+        if (page.pinCount == 0) {
+            throw new IllegalStateException("Page " + page.pageNumber + " is not pinned");
+        }
+        page.pinCount--;
+        page.dirty |= dirty;
+    }
+
+    /**
+     * Drop every page of a file without writing it back, used when the file is deleted
+     */
+    public synchronized void discard(PageFile file) {
+        for (Page page : frames) {
+            if (page != null && page.file == file) {
+                residentPages.remove(key(file, page.pageNumber));
+                page.file = null;
+                page.pinCount = 0;
+                page.dirty = false;
+                page.referenced = false;
+            }
+        }
+    }
+
+    public synchronized int getCapacity() {
+        return frames.length;
+    }
+
+    // A free frame, or the first unpinned frame the clock hand finds without a second chance
+    private Page evict() throws IOException {
+        for (int step = 0; step < frames.length * 2; step++) {
+            int frame = clockHand;
+            clockHand = (clockHand + 1) % frames.length;
+            Page page = frames[frame];
+            if (page == null) {
+                frames[frame] = new Page();
+                return frames[frame];
+            }
+            if (page.file == null) {
+                return page;
+            }
+            if (page.pinCount > 0) {
+                continue;
+            }
+            if (page.referenced) {
+                page.referenced = false;
+                continue;
+            }
+            if (page.dirty) {
+                page.file.writePage(page.pageNumber, page.data);
+            }
+            residentPages.remove(key(page.file, page.pageNumber));
+            page.file = null;
+            return page;
+        }
+        throw new IOException("Buffer pool exhausted: all " + frames.length + " pages are pinned");
+    }
+
+    private static long key(PageFile file, int pageNumber) {
+        return ((long) file.getId() << 32) | (pageNumber & 0xFFFFFFFFL);
+    }
+}
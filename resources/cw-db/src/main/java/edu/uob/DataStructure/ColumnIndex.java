@@ -0,0 +1,45 @@
+package edu.uob.DataStructure;
+
+import java.util.BitSet;
+
+/**
+ * A secondary index over one column of a {@link Table}, kept up to date by the
+ * table as rows change. NULL cells never match a comparison, so they are not indexed.
+ */
+interface ColumnIndex {
+    // Lets the table pick BITMAP or HASH from the column's values
+    String AUTO = "AUTO";
+
+    /**
+     * A new empty index of the given kind, or null if there is no such kind
+     */
+    static ColumnIndex create(String type) {
+        switch (type.toUpperCase()) {
+            case HashIndex.TYPE:
+                return new HashIndex();
+            case OrderedIndex.TYPE:
+                return new OrderedIndex();
+            case BitmapIndex.TYPE:
+                return new BitmapIndex();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Name written to the index file, so the same kind of index is rebuilt on load
+     */
+    String getType();
+
+    void add(int slot, String value);
+
+    void remove(int slot, String value);
+
+    void clear();
+
+    /**
+     * Slots of the rows where "cell operator value" holds, or null if this kind
+     * of index cannot answer the operator
+     */
+    BitSet find(String operator, String value);
+}
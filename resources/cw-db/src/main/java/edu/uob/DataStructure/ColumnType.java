@@ -0,0 +1,67 @@
+package edu.uob.DataStructure;
+
+/**
+ * Type of the values in a column, as inferred from the values themselves
+ */
+public enum ColumnType {
+    INTEGER,
+    FLOAT,
+    BOOLEAN,
+    STRING;
+
+    /**
+     * Same test as matching -?\d+(\.\d+)? without going through a regex
+     */
+    public static boolean isNumeric(String value) {
+        int length = value.length();
+        int position = value.startsWith("-") ? 1 : 0;
+        int digits = countDigits(value, position);
+        if (digits == 0) {
+            return false;
+        }
+        position += digits;
+        if (position == length) {
+            return true;
+        }
+        if (value.charAt(position) != '.') {
+            return false;
+        }
+        int fraction = countDigits(value, position + 1);
+        return fraction > 0 && position + 1 + fraction == length;
+    }
+
+    private static int countDigits(String value, int from) {
+        int position = from;
+        while (position < value.length() && value.charAt(position) >= '0' && value.charAt(position) <= '9') {
+            position++;
+        }
+        return position - from;
+    }
+
+    /**
+     * The type a value can be stored as without changing how it is written back:
+     * "7" is an INTEGER but "007" and "1.50" stay strings
+     */
+    public static ColumnType of(String value) {
+        if (value.equals("TRUE") || value.equals("FALSE")) {
+            return BOOLEAN;
+        }
+        if (!isNumeric(value)) {
+            return STRING;
+        }
+        if (value.indexOf('.') < 0) {
+            return isCanonicalLong(value) ? INTEGER : STRING;
+        }
+        return Double.toString(Double.parseDouble(value)).equals(value) ? FLOAT : STRING;
+    }
+
+    private static boolean isCanonicalLong(String value) {
+        int first = value.startsWith("-") ? 1 : 0;
+        int digits = value.length() - first;
+        if (value.charAt(first) == '0') {
+            return digits == 1 && first == 0;
+        }
+        // 18 digits always fit in a long
+        return digits <= 18;
+    }
+}
@@ -0,0 +1,253 @@
+package edu.uob.DataStructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The values of one column. Numbers are kept in a primitive array and booleans
+ * in a bit set for as long as every value has that type; the first value of
+ * another type turns the column back into strings. Strings are dictionary
+ * encoded: each row holds a small code into a list of the distinct values,
+ * until there are too many distinct values for that to pay off.
+ */
+class ColumnVector {
+    private static final String NULL = "NULL";
+    // Past this many distinct values the column keeps its strings directly
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    // Null until the column holds its first non-NULL value
+    private ColumnType type;
+    private final BitSet nulls;
+    private long[] longs;
+    private double[] doubles;
+    private BitSet booleans;
+    // A STRING column uses either codes and a dictionary, or plain strings
+    private int[] codes;
+    private List<String> dictionary;
+    private Map<String, Integer> codeOf;
+    private String[] strings;
+    private int size;
+    private int capacity;
+
+    /**
+     * A column that is NULL in each of the given number of rows
+     */
+    ColumnVector(int rows) {
+        this.nulls = new BitSet();
+        this.capacity = Math.max(16, rows);
+        this.size = rows;
+        nulls.set(0, rows);
+    }
+
+    ColumnType getType() {
+        return type == null ? ColumnType.STRING : type;
+    }
+
+    boolean isNull(int slot) {
+        return nulls.get(slot);
+    }
+
+    String get(int slot) {
+        if (nulls.get(slot)) {
+            return NULL;
+        }
+        switch (type) {
+            case INTEGER:
+                return Long.toString(longs[slot]);
+            case FLOAT:
+                return Double.toString(doubles[slot]);
+            case BOOLEAN:
+                return booleans.get(slot) ? "TRUE" : "FALSE";
+            default:
+                return codes != null ? dictionary.get(codes[slot]) : strings[slot];
+        }
+    }
+
+    /**
+     * Value of a non-NULL cell in an INTEGER or FLOAT column
+     */
+    double getNumber(int slot) {
+        return type == ColumnType.INTEGER ? longs[slot] : doubles[slot];
+    }
+
+    /**
+     * The distinct values by code, or null if the column is not dictionary encoded
+     */
+    List<String> getDictionary() {
+        return codes != null ? Collections.unmodifiableList(dictionary) : null;
+    }
+
+    /**
+     * Dictionary code of a non-NULL cell
+     */
+    int getCode(int slot) {
+        return codes[slot];
+    }
+
+    void set(int slot, String value) {
+        if (value.equals(NULL)) {
+            nulls.set(slot);
+            if (strings != null) {
+                strings[slot] = null;
+            }
+            return;
+        }
+        if (type != ColumnType.STRING) {
+            ColumnType valueType = ColumnType.of(value);
+            if (type == null) {
+                specialize(valueType);
+            } else if (valueType != type) {
+                fallBackToStrings();
+            }
+        }
+        nulls.clear(slot);
+        switch (type) {
+            case INTEGER:
+                longs[slot] = Long.parseLong(value);
+                break;
+            case FLOAT:
+                doubles[slot] = Double.parseDouble(value);
+                break;
+            case BOOLEAN:
+                booleans.set(slot, value.equals("TRUE"));
+                break;
+            default:
+                setString(slot, value);
+        }
+    }
+
+    private void setString(int slot, String value) {
+        if (codes != null) {
+            Integer code = codeOf.get(value);
+            if (code == null && dictionary.size() < MAX_DICTIONARY_SIZE) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codeOf.put(value, code);
+            }
+            if (code != null) {
+                codes[slot] = code;
+                return;
+            }
+            decodeDictionary();
+        }
+        strings[slot] = value;
+    }
+
+    void append(String value) {
+        if (size == capacity) {
+            grow(capacity * 2);
+        }
+        nulls.set(size);
+        size++;
+        set(size - 1, value);
+    }
+
+    void removeRows(BitSet slots) {
+        int kept = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (!slots.get(slot)) {
+                move(slot, kept++);
+            }
+        }
+        nulls.clear(kept, size);
+        if (strings != null) {
+            Arrays.fill(strings, kept, size, null);
+        }
+        size = kept;
+    }
+
+    private void move(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        nulls.set(to, nulls.get(from));
+        if (type == null) {
+            return;
+        }
+        switch (type) {
+            case INTEGER:
+                longs[to] = longs[from];
+                break;
+            case FLOAT:
+                doubles[to] = doubles[from];
+                break;
+            case BOOLEAN:
+                booleans.set(to, booleans.get(from));
+                break;
+            default:
+                if (codes != null) {
+                    codes[to] = codes[from];
+                } else {
+                    strings[to] = strings[from];
+                }
+        }
+    }
+
+    private void specialize(ColumnType valueType) {
+        type = valueType;
+        switch (type) {
+            case INTEGER:
+                longs = new long[capacity];
+                break;
+            case FLOAT:
+                doubles = new double[capacity];
+                break;
+            case BOOLEAN:
+                booleans = new BitSet();
+                break;
+            default:
+                codes = new int[capacity];
+                dictionary = new ArrayList<>();
+                codeOf = new HashMap<>();
+        }
+    }
+
+    private void fallBackToStrings() {
+        String[] values = new String[size];
+        for (int slot = 0; slot < size; slot++) {
+            values[slot] = nulls.get(slot) ? null : get(slot);
+        }
+        longs = null;
+        doubles = null;
+        booleans = null;
+        specialize(ColumnType.STRING);
+        for (int slot = 0; slot < size; slot++) {
+            if (values[slot] != null) {
+                setString(slot, values[slot]);
+            }
+        }
+    }
+
+    private void decodeDictionary() {
+        strings = new String[capacity];
+        for (int slot = 0; slot < size; slot++) {
+            if (!nulls.get(slot)) {
+                strings[slot] = dictionary.get(codes[slot]);
+            }
+        }
+        codes = null;
+        dictionary = null;
+        codeOf = null;
+    }
+
+    private void grow(int newCapacity) {
+        capacity = newCapacity;
+        if (longs != null) {
+            longs = Arrays.copyOf(longs, capacity);
+        }
+        if (doubles != null) {
+            doubles = Arrays.copyOf(doubles, capacity);
+        }
+        if (codes != null) {
+            codes = Arrays.copyOf(codes, capacity);
+        }
+        if (strings != null) {
+            strings = Arrays.copyOf(strings, capacity);
+        }
+    }
+}
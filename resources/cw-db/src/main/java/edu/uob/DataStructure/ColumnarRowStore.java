@@ -0,0 +1,115 @@
+package edu.uob.DataStructure;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Column-major storage: one contiguous vector per column and a shared row count.
+ * A WHERE clause or projection on one attribute walks a single vector instead of
+ * visiting every row list, numeric columns are compared without parsing, and
+ * repeated strings are stored once per column.
+ */
+public class ColumnarRowStore implements RowStore {
+    private static final String NULL = "NULL";
+
+    private final List<ColumnVector> columns;
+    private int size;
+
+    public ColumnarRowStore() {
+        this.columns = new ArrayList<>();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getCell(int slot, int column) {
+        checkSlot(slot);
+        return column < columns.size() ? columns.get(column).get(slot) : NULL;
+    }
+
+    @Override
+    public List<String> getRow(int slot) {
+        checkSlot(slot);
+        List<String> row = new ArrayList<>(columns.size());
+        for (ColumnVector column : columns) {
+            row.add(column.get(slot));
+        }
+        return row;
+    }
+
+    @Override
+    public void setCell(int slot, int column, String value) {
+        checkSlot(slot);
+        columns.get(column).set(slot, value);
+    }
+
+    @Override
+    public void appendRow(List<String> row) {
+        while (columns.size() < row.size()) {
+            columns.add(new ColumnVector(size));
+        }
+        for (int col = 0; col < columns.size(); col++) {
+            columns.get(col).append(col < row.size() ? row.get(col) : NULL);
+        }
+        size++;
+    }
+
+    @Override
+    public void removeRows(BitSet slots) {
+        for (ColumnVector column : columns) {
+            column.removeRows(slots);
+        }
+        size -= slots.get(0, size).cardinality();
+    }
+
+    @Override
+    public void addColumn() {
+        columns.add(new ColumnVector(size));
+    }
+
+    @Override
+    public void dropColumn(int column) {
+        if (column < columns.size()) {
+            columns.remove(column);
+        }
+    }
+
+    @Override
+    public ColumnType columnType(int column) {
+        return column < columns.size() ? columns.get(column).getType() : ColumnType.STRING;
+    }
+
+    @Override
+    public boolean isNull(int slot, int column) {
+        checkSlot(slot);
+        return column >= columns.size() || columns.get(column).isNull(slot);
+    }
+
+    @Override
+    public double getNumber(int slot, int column) {
+        checkSlot(slot);
+        return columns.get(column).getNumber(slot);
+    }
+
+    @Override
+    public List<String> dictionary(int column) {
+        return column < columns.size() ? columns.get(column).getDictionary() : null;
+    }
+
+    @Override
+    public int getCode(int slot, int column) {
+        checkSlot(slot);
+        return columns.get(column).getCode(slot);
+    }
+
+    // The vectors have spare capacity, so an out of range slot would read a stale value instead of failing
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Row " + slot + " of " + size);
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package edu.uob.DataStructure;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary column-oriented snapshot format ({@code .col}).
+ *
+ * <pre>
+ * int    magic "UOBC"
+ * short  version
+ * int    column count, int row count
+ * column names
+ * per column: type tag, null bitmap, typed block
+ * </pre>
+ *
+ * Version 2 is the compressed variant: each column is stored as a block count followed
+ * by blocks of at most {@value #BLOCK_BYTES} bytes of the version 1 column, each one an
+ * int raw length, an int compressed length and the deflated bytes. Compression only
+ * shrinks the file: blocks are inflated one at a time while the snapshot is loaded,
+ * and the table is held uncompressed by its row store afterwards.
+ *
+ * A column is stored as 64-bit integers, doubles or a bitmap of booleans when every
+ * non-NULL value has exactly that canonical text form, so reading it back yields the
+ * same strings. Anything else is dictionary-encoded.
+ */
+public class ColumnarTableFormat implements TableFormat {
+    private static final int MAGIC = 0x554F4243; // "UOBC"
+    private static final short VERSION = 1;
+    private static final short COMPRESSED_VERSION = 2;
+    private static final int BLOCK_BYTES = 64 * 1024;
+
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_DOUBLE = 2;
+    private static final byte TYPE_BOOLEAN = 3;
+    private static final byte TYPE_STRING = 4;
+
+    private static final String NULL = "NULL";
+
+    private final boolean compressed;
+
+    public ColumnarTableFormat() {
+        this(false);
+    }
+
+    /**
+     * @param compressed write deflate-compressed column blocks; both variants are always readable
+     */
+    public ColumnarTableFormat(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    @Override
+    public String getExtension() {
+        return ".col";
+    }
+
+    @Override
+    public void write(List<String> columnNames, List<List<String>> rows, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        int rowCount = rows.size();
+        data.writeInt(MAGIC);
+        data.writeShort(compressed ? COMPRESSED_VERSION : VERSION);
+        data.writeInt(columnNames.size());
+        data.writeInt(rowCount);
+        for (String column : columnNames) {
+            writeString(data, column);
+        }
+        for (int col = 0; col < columnNames.size(); col++) {
+            if (compressed) {
+                writeCompressedColumn(data, rows, col);
+            } else {
+                writeColumn(data, rows, col);
+            }
+        }
+        data.flush();
+    }
+
+    private void writeCompressedColumn(DataOutputStream data, List<List<String>> rows, int col) throws IOException {
+        ByteArrayOutputStream column = new ByteArrayOutputStream();
+        DataOutputStream columnData = new DataOutputStream(column);
+        writeColumn(columnData, rows, col);
+        columnData.flush();
+        byte[] raw = column.toByteArray();
+        int blockCount = (raw.length + BLOCK_BYTES - 1) / BLOCK_BYTES;
+        data.writeInt(blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            int start = block * BLOCK_BYTES;
+            byte[] blockBytes = Arrays.copyOfRange(raw, start, Math.min(raw.length, start + BLOCK_BYTES));
+            byte[] deflated = BlockCompression.deflate(blockBytes);
+            data.writeInt(blockBytes.length);
+            data.writeInt(deflated.length);
+            data.write(deflated);
+        }
+    }
+
+    // A stream over the version 1 encoding of one column that inflates its blocks as they are reached
+    private DataInputStream readCompressedColumn(DataInputStream data) throws IOException {
+        return new DataInputStream(new BlockInputStream(data, data.readInt()));
+    }
+
+    /**
+     * Inflates the blocks of one column on demand, so only one block is held at a time
+     * and the next column's blocks are left unread
+     */
+    private static final class BlockInputStream extends InputStream {
+        private final DataInputStream data;
+        private int blocksLeft;
+        private byte[] block = new byte[0];
+        private int position;
+
+        private BlockInputStream(DataInputStream data, int blockCount) {
+            this.data = data;
+            this.blocksLeft = blockCount;
+        }
+
+        private boolean nextBlock() throws IOException {
+            while (position == block.length) {
+                if (blocksLeft == 0) {
+                    return false;
+                }
+                int rawLength = data.readInt();
+                byte[] deflated = new byte[data.readInt()];
+                data.readFully(deflated);
+                block = BlockCompression.inflate(deflated, rawLength);
+                position = 0;
+                blocksLeft--;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return nextBlock() ? block[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!nextBlock()) {
+                return -1;
+            }
+            int count = Math.min(length, block.length - position);
+            System.arraycopy(block, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+    }
+
+    private void writeColumn(DataOutputStream data, List<List<String>> rows, int col) throws IOException {
+        int rowCount = rows.size();
+        BitSet nulls = new BitSet(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            if (NULL.equals(cell(rows.get(i), col))) {
+                nulls.set(i);
+            }
+        }
+        byte type = inferType(rows, col);
+        data.writeByte(type);
+        writeBits(data, nulls, rowCount);
+
+        switch (type) {
+            case TYPE_INT:
+                for (int i = 0; i < rowCount; i++) {
+                    data.writeLong(nulls.get(i) ? 0L : Long.parseLong(cell(rows.get(i), col)));
+                }
+                break;
+            case TYPE_DOUBLE:
+                for (int i = 0; i < rowCount; i++) {
+                    data.writeDouble(nulls.get(i) ? 0.0 : Double.parseDouble(cell(rows.get(i), col)));
+                }
+                break;
+            case TYPE_BOOLEAN:
+                BitSet values = new BitSet(rowCount);
+                for (int i = 0; i < rowCount; i++) {
+                    if ("TRUE".equals(cell(rows.get(i), col))) {
+                        values.set(i);
+                    }
+                }
+                writeBits(data, values, rowCount);
+                break;
+            default:
+                writeDictionaryColumn(data, rows, col, nulls);
+        }
+    }
+
+    private void writeDictionaryColumn(DataOutputStream data, List<List<String>> rows, int col, BitSet nulls) throws IOException {
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int[] rowCodes = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            if (nulls.get(i)) {
+                continue;
+            }
+            String value = cell(rows.get(i), col);
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                codes.put(value, code);
+                dictionary.add(value);
+            }
+            rowCodes[i] = code;
+        }
+        data.writeInt(dictionary.size());
+        for (String value : dictionary) {
+            writeString(data, value);
+        }
+        // Code width follows the dictionary size
+        for (int code : rowCodes) {
+            if (dictionary.size() <= 0x100) {
+                data.writeByte(code);
+            } else if (dictionary.size() <= 0x10000) {
+                data.writeShort(code);
+            } else {
+                data.writeInt(code);
+            }
+        }
+    }
+
+    private byte inferType(List<List<String>> rows, int col) {
+        boolean canBeInt = true;
+        boolean canBeDouble = true;
+        boolean canBeBoolean = true;
+        for (List<String> row : rows) {
+            String value = cell(row, col);
+            if (NULL.equals(value)) {
+                continue;
+            }
+            canBeInt = canBeInt && isCanonicalLong(value);
+            canBeDouble = canBeDouble && isCanonicalDouble(value);
+            canBeBoolean = canBeBoolean && (value.equals("TRUE") || value.equals("FALSE"));
+            if (!canBeInt && !canBeDouble && !canBeBoolean) {
+                return TYPE_STRING;
+            }
+        }
+        if (rows.isEmpty()) {
+            return TYPE_STRING;
+        }
+        if (canBeInt) {
+            return TYPE_INT;
+        }
+        if (canBeDouble) {
+            return TYPE_DOUBLE;
+        }
+        return canBeBoolean ? TYPE_BOOLEAN : TYPE_STRING;
+    }
+
+    static boolean isCanonicalLong(String value) {
+        if (value.isEmpty() || value.length() > 20) {
+            return false;
+        }
+        try {
+            return Long.toString(Long.parseLong(value)).equals(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static boolean isCanonicalDouble(String value) {
+        // Only plain decimals such as 65.5, never exponents or integers
+        int dot = value.indexOf('.');
+        if (dot <= 0 || value.indexOf('E') >= 0 || value.indexOf('e') >= 0) {
+            return false;
+        }
+        try {
+            return Double.toString(Double.parseDouble(value)).equals(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Table read(String tableName, File file, RowStore store) throws IOException {
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not a columnar table file: " + file.getName());
+            }
+            short version = data.readShort();
+            if (version != VERSION && version != COMPRESSED_VERSION) {
+                throw new IOException("Unsupported columnar table version " + version + " in " + file.getName());
+            }
+            int columnCount = data.readInt();
+            int rowCount = data.readInt();
+            List<String> columnNames = new ArrayList<>();
+            for (int col = 0; col < columnCount; col++) {
+                columnNames.add(readString(data));
+            }
+            String[][] columns = new String[columnCount][];
+            for (int col = 0; col < columnCount; col++) {
+                columns[col] = readColumn(version == COMPRESSED_VERSION ? readCompressedColumn(data) : data, rowCount);
+            }
+
+            Table table = TableFormat.newTable(tableName, columnNames, store);
+            for (int i = 0; i < rowCount; i++) {
+                List<String> row = new ArrayList<>(columnCount);
+                for (int col = 0; col < columnCount; col++) {
+                    row.add(columns[col][i]);
+                }
+                table.addRowDirect(row);
+            }
+            return table;
+        }
+    }
+
+    private String[] readColumn(DataInputStream data, int rowCount) throws IOException {
+        byte type = data.readByte();
+        BitSet nulls = readBits(data, rowCount);
+        String[] values = new String[rowCount];
+        switch (type) {
+            case TYPE_INT:
+                for (int i = 0; i < rowCount; i++) {
+                    long value = data.readLong();
+                    values[i] = nulls.get(i) ? NULL : Long.toString(value);
+                }
+                break;
+            case TYPE_DOUBLE:
+                for (int i = 0; i < rowCount; i++) {
+                    double value = data.readDouble();
+                    values[i] = nulls.get(i) ? NULL : Double.toString(value);
+                }
+                break;
+            case TYPE_BOOLEAN:
+                BitSet bits = readBits(data, rowCount);
+                for (int i = 0; i < rowCount; i++) {
+                    values[i] = nulls.get(i) ? NULL : (bits.get(i) ? "TRUE" : "FALSE");
+                }
+                break;
+            case TYPE_STRING:
+                int dictionarySize = data.readInt();
+                String[] dictionary = new String[dictionarySize];
+                for (int i = 0; i < dictionarySize; i++) {
+                    dictionary[i] = readString(data);
+                }
+                for (int i = 0; i < rowCount; i++) {
+                    int code;
+                    if (dictionarySize <= 0x100) {
+                        code = data.readUnsignedByte();
+                    } else if (dictionarySize <= 0x10000) {
+                        code = data.readUnsignedShort();
+                    } else {
+                        code = data.readInt();
+                    }
+                    values[i] = nulls.get(i) ? NULL : dictionary[code];
+                }
+                break;
+            default:
+                throw new IOException("Unknown column type " + type);
+        }
+        return values;
+    }
+
+    private static String cell(List<String> row, int col) {
+        return col < row.size() ? row.get(col) : NULL;
+    }
+
+    private static void writeBits(DataOutputStream data, BitSet bits, int length) throws IOException {
+        long[] words = bits.toLongArray();
+        int wordCount = (length + 63) / 64;
+        for (int i = 0; i < wordCount; i++) {
+            data.writeLong(i < words.length ? words[i] : 0L);
+        }
+    }
+
+    private static BitSet readBits(DataInputStream data, int length) throws IOException {
+        long[] words = new long[(length + 63) / 64];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = data.readLong();
+        }
+        return BitSet.valueOf(words);
+    }
+
+    // writeUTF is limited to 64KB, so strings carry an int length
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        byte[] bytes = new byte[data.readInt()];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
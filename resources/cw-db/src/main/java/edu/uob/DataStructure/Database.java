@@ -1,109 +1,356 @@
 package edu.uob.DataStructure;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.*;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Manages a single database and its tables
  */
 public class Database {
+    // Bounded pool shared by every database, so preloading never runs more parsers than cores
+    private static final ExecutorService LOADER = Executors.newFixedThreadPool(StorageConfig.loaderThreads(), runnable -> {
+        Thread thread = new Thread(runnable, "table-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private String path;
     private String name;
     private Map<String, Table> tables;
-
-    public Database(String name, String path) {
+    private Map<String, TableLog> logs;
+    // Tables found on disk but not parsed yet, null until the folder has been listed
+    private Set<String> unloadedTables;
+    // Tables being parsed on the loader pool; only the command thread touches the maps above
+    private final Map<String, CompletableFuture<LoadedTable>> pendingLoads = new HashMap<>();
+    private final Map<String, Long> loadMillis = new TreeMap<>();
+    private final PersistenceManager persistence;
+
+    /**
+     * Opening a database only records where it lives, tables are read on first access
+     */
+    public Database(String name, String path, PersistenceManager persistence) {
         this.name = name;
         this.path = path;
+        this.persistence = persistence;
         this.tables = new HashMap<>();
-        loadTables();
+        this.logs = new HashMap<>();
+    }
+
+    private Set<String> unloadedTables() {
+        if (unloadedTables == null) {
+            File dbFolder = new File(path);
+            unloadedTables = dbFolder.isDirectory() ? findTableNames(dbFolder) : new TreeSet<>();
+        }
+        return unloadedTables;
+    }
+
+    private boolean tableExists(String tableName) {
+        return tables.containsKey(tableName) || pendingLoads.containsKey(tableName)
+                || unloadedTables().contains(tableName);
+    }
+
+    /**
+     * Get a table, parsing its snapshot and replaying its log the first time it is used
+     */
+    private Table getTable(String tableName) {
+        Table table = tables.get(tableName);
+        if (table != null) {
+            return table;
+        }
+        CompletableFuture<LoadedTable> pending = pendingLoads.remove(tableName);
+        if (pending != null) {
+            return register(tableName, awaitLoad(tableName, pending));
+        }
+        if (unloadedTables().remove(tableName)) {
+            return register(tableName, loadTable(tableName));
+        }
+        return null;
+    }
+
+    /**
+     * Start parsing every table that is not loaded yet on the shared loader pool.
+     * Returns immediately, a table that is used before it is ready waits for its own load.
+     */
+    public void preloadTables() {
+        for (String tableName : unloadedTables()) {
+            pendingLoads.put(tableName, CompletableFuture.supplyAsync(() -> loadTable(tableName), LOADER));
+        }
+        unloadedTables().clear();
+    }
+
+    /**
+     * Wait for every pending load, e.g. before the files are deleted
+     */
+    public void awaitPreload() {
+        for (String tableName : new ArrayList<>(pendingLoads.keySet())) {
+            getTable(tableName);
+        }
+    }
+
+    /**
+     * How long each loaded table took to parse and replay, in milliseconds
+     */
+    public Map<String, Long> getLoadTimings() {
+        return Collections.unmodifiableMap(loadMillis);
+    }
+
+    private LoadedTable awaitLoad(String tableName, CompletableFuture<LoadedTable> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            System.err.println("Error loading table " + tableName + ": " + e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    // Runs on the command thread, so the maps never need locking
+    private Table register(String tableName, LoadedTable loaded) {
+        if (loaded == null) {
+            return null;
+        }
+        tables.put(tableName, loaded.table);
+        logs.put(tableName, loaded.log);
+        persistence.track(loaded.table, loaded.log);
+        loadMillis.put(tableName, loaded.millis);
+        if (StorageConfig.reportLoadTimes()) {
+            System.out.println("Loaded table " + name + "." + tableName + " (" + loaded.table.getRowCount()
+                    + " rows) in " + loaded.millis + " ms");
+        }
+        try {
+            foldLogIfNeeded(loaded.table);
+        } catch (IOException e) {
+            System.err.println("Error folding log for table " + tableName + ": " + e.getMessage());
+        }
+        return loaded.table;
+    }
+
+    // Only reads files, so it is safe to run on a loader thread
+    private LoadedTable loadTable(String tableName) {
+        long start = System.nanoTime();
+        TableFormat writeFormat = StorageConfig.tableFormat(tableName);
+        TableLog log = new TableLog(path, tableName, writeFormat);
+        try {
+            log.recover();
+            Table table = readSnapshot(tableName, writeFormat);
+            if (table == null) {
+                return null;
+            }
+            log.replay(table);
+            loadIndexes(tableName, table);
+            return new LoadedTable(table, log, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            System.err.println("Error loading table " + tableName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Index definitions live next to the snapshot, one "column<TAB>type" line each
+    private File indexFile(String tableName) {
+        return new File(path, tableName + ".idx");
     }
 
-    private void loadTables() {
-        File dbFolder = new File(path);
-        if (!dbFolder.exists() || !dbFolder.isDirectory()) {
+    private void loadIndexes(String tableName, Table table) throws IOException {
+        File file = indexFile(tableName);
+        if (!file.exists()) {
             return;
         }
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            if (!fields[0].isEmpty()) {
+                table.createIndex(fields[0], fields.length > 1 ? fields[1] : HashIndex.TYPE);
+            }
+        }
+    }
 
-        File[] tableFiles = dbFolder.listFiles(file -> file.isFile() && file.getName().endsWith(".tab"));
+    private void saveIndexes(Table table) throws IOException {
+        File file = indexFile(table.getName());
+        Map<String, String> types = table.getIndexTypes();
+        if (types.isEmpty()) {
+            Files.deleteIfExists(file.toPath());
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, String> entry : types.entrySet()) {
+            lines.append(entry.getKey()).append("\t").append(entry.getValue()).append("\n");
+        }
+        // A crash during CREATE or DROP INDEX must not leave a truncated catalog
+        TableLog.writeAtomically(file, lines.toString().getBytes(StandardCharsets.UTF_8));
+    }
 
-        if (tableFiles != null) {
-            for (File file : tableFiles) {
-                String tableName = file.getName().replace(".tab", "").toLowerCase();
-                try {
-                    List<String> lines = Files.readAllLines(file.toPath());
-                    if (!lines.isEmpty()) {
-                        Table table = new Table(tableName);
-                        String headerLine = lines.get(0);
-                        String[] columns = headerLine.split("\t");
-                        table.getColumnNames().clear();
-                        for (String column : columns) {
-                            if (!column.trim().isEmpty()) {
-                                table.getColumnNames().add(column.trim().toLowerCase());
-                            }
-                        }
-                        if (!table.getColumnNames().contains("id")) {
-                            table.getColumnNames().add(0, "id");
-                        }
-                        for (int i = 1; i < lines.size(); i++) {
-                            try {
-                                String[] values = lines.get(i).split("\t");
-                                List<String> rowData = new ArrayList<>(Arrays.asList(values));
-                                table.addRowDirect(rowData);
-                            } catch (Exception e) {
-                                System.err.println("Warning: Error loading row " + i + " from table " + tableName + ": " + e.getMessage());
-                                // Continue processing the next row, don't interrupt
-                            }
-                        }
-
-                        tables.put(tableName, table);
+    public String createIndex(String tableName, String columnName, String indexType) {
+        tableName = tableName.toLowerCase();
+        Table table = getTable(tableName);
+        if (table == null) {
+            return "[ERROR] Table " + tableName + " does not exist";
+        }
+        if (!table.columnNameExists(columnName)) {
+            return "[ERROR] Column does not exist: " + columnName;
+        }
+
+        table.getLock().writeLock().lock();
+        try {
+            if (!indexType.equalsIgnoreCase(ColumnIndex.AUTO) && ColumnIndex.create(indexType) == null) {
+                return "[ERROR] Unknown index type: " + indexType;
+            }
+            if (!table.createIndex(columnName, indexType)) {
+                return "[ERROR] Column " + columnName + " is already indexed";
+            }
+            saveIndexes(table);
+            return "[OK]";
+        } catch (IOException e) {
+            return "[ERROR] " + e.getMessage();
+        } finally {
+            table.getLock().writeLock().unlock();
+        }
+    }
+
+    public String dropIndex(String tableName, String columnName) {
+        tableName = tableName.toLowerCase();
+        Table table = getTable(tableName);
+        if (table == null) {
+            return "[ERROR] Table " + tableName + " does not exist";
+        }
+
+        table.getLock().writeLock().lock();
+        try {
+            if (!table.dropIndex(columnName)) {
+                return "[ERROR] No index on column: " + columnName;
+            }
+            saveIndexes(table);
+            return "[OK]";
+        } catch (IOException e) {
+            return "[ERROR] " + e.getMessage();
+        } finally {
+            table.getLock().writeLock().unlock();
+        }
+    }
+
+    private static final class LoadedTable {
+        private final Table table;
+        private final TableLog log;
+        private final long millis;
+
+        private LoadedTable(Table table, TableLog log, long millis) {
+            this.table = table;
+            this.log = log;
+            this.millis = millis;
+        }
+    }
+
+    // Every table that has a snapshot (or an interrupted snapshot) in any format
+    private Set<String> findTableNames(File dbFolder) {
+        Set<String> tableNames = new TreeSet<>();
+        File[] files = dbFolder.listFiles(File::isFile);
+        if (files == null) {
+            return tableNames;
+        }
+        for (File file : files) {
+            for (TableFormat format : TableFormat.all()) {
+                String fileName = file.getName();
+                for (String suffix : new String[]{format.getExtension(), format.getExtension() + ".tmp"}) {
+                    if (fileName.endsWith(suffix) && fileName.length() > suffix.length()) {
+                        tableNames.add(fileName.substring(0, fileName.length() - suffix.length()).toLowerCase());
                     }
-                } catch (IOException e) {
-                    System.err.println("Error loading table " + tableName + ": " + e.getMessage());
                 }
             }
         }
+        return tableNames;
+    }
+
+    // Prefer the configured format, its snapshot is the newer one during a migration
+    private Table readSnapshot(String tableName, TableFormat writeFormat) throws IOException {
+        List<TableFormat> formats = new ArrayList<>();
+        formats.add(writeFormat);
+        formats.addAll(TableFormat.all());
+        for (TableFormat format : formats) {
+            File file = new File(path, tableName + format.getExtension());
+            if (file.exists()) {
+                if (format instanceof TabTableFormat && StorageConfig.storageMode(tableName) == StorageMode.MAPPED) {
+                    Table table = ((TabTableFormat) format).map(tableName, file);
+                    if (table != null) {
+                        return table;
+                    }
+                }
+                RowStore store = newRowStore(tableName);
+                try {
+                    return format.read(tableName, file, store);
+                } catch (IOException | RuntimeException e) {
+                    store.close();
+                    throw e;
+                }
+            }
+        }
+        return null;
+    }
+
+    private RowStore newRowStore(String tableName) {
+        switch (StorageConfig.storageMode(tableName)) {
+            case PAGED:
+                return new PagedRowStore(name + "." + tableName, BufferPool.shared());
+            case LSM:
+                return new LsmRowStore(new File(path), tableName, StorageConfig.lsmMemtableRows(),
+                        StorageConfig.compressed(tableName));
+            case OFF_HEAP:
+                return new OffHeapRowStore();
+            case COLUMNAR:
+                return new ColumnarRowStore();
+            default:
+                return new HeapRowStore();
+        }
     }
 
     public String createTable(String tableName, String[] columns) {
         tableName = tableName.toLowerCase();
-        if (tables.containsKey(tableName)) {
+        if (tableExists(tableName)) {
             return "[ERROR] Table " + tableName + " already exists";
         }
 
-        Table table = new Table(tableName);
+        Table table = new Table(tableName, newRowStore(tableName));
         for (String column : columns) {
             table.addColumn(column.trim());
         }
         tables.put(tableName, table);
+        logs.put(tableName, new TableLog(path, tableName, StorageConfig.tableFormat(tableName)));
         try {
             saveTable(table);
+            persistence.track(table, logs.get(tableName));
             return "[OK]";
         } catch (IOException e) {
             tables.remove(tableName);
+            logs.remove(tableName);
+            table.close();
             return "[ERROR] Error creating table: " + e.getMessage();
         }
     }
 
     public String insertRow(String tableName, String[] values) {
         tableName = tableName.toLowerCase();
-        Table table = tables.get(tableName);
+        Table table = getTable(tableName);
         if (table == null) {
             return "[ERROR] Table " + tableName + " does not exist";
         }
+        // Checkpoints copy the table under the read lock
+        table.getLock().writeLock().lock();
         try {
-            table.addRow(values);
-            saveTable(table);
+            List<String> row = table.addRow(values);
+            logStatement(table, log -> log.appendInsert(row));
             return "[OK]";
         } catch (Exception e) {
             return "[ERROR] " + e.getMessage();
+        } finally {
+            table.getLock().writeLock().unlock();
         }
     }
 
     public String select(String tableName, String[] columnNames, String condition) {
         tableName = tableName.toLowerCase();
-        Table table = tables.get(tableName);
+        Table table = getTable(tableName);
         if (table == null) {
             return "[ERROR] Table " + tableName + " does not exist";
         }
@@ -167,12 +414,12 @@ public class Database {
     }
     
     private String handleIdOnlySelection(Table table, String condition) {
-        List<List<String>> matchingRows = table.evaluateCondition(condition);
+        List<Integer> matchingRows = table.matchingRowIndexes(condition);
         StringBuilder result = new StringBuilder("[OK]\n");
         result.append("id\n");
 
-        for (List<String> row : matchingRows) {
-            result.append(row.get(0)).append("\n");
+        for (int row : matchingRows) {
+            result.append(table.getCell(row, 0)).append("\n");
         }
         return result.toString().trim();
     }
@@ -182,13 +429,13 @@ public class Database {
             return "[ERROR] Attribute does not exist: " + columnName;
         }
 
-        List<List<String>> matchingRows = table.evaluateCondition(condition);
+        List<Integer> matchingRows = table.matchingRowIndexes(condition);
         int colIndex = table.getColumnIndex(columnName);
         StringBuilder result = new StringBuilder("[OK]\n");
         result.append(columnName).append("\n");
 
-        for (List<String> row : matchingRows) {
-            result.append(row.get(colIndex)).append("\n");
+        for (int row : matchingRows) {
+            result.append(table.getCell(row, colIndex)).append("\n");
         }
         return result.toString().trim();
     }
@@ -208,11 +455,12 @@ public class Database {
 
     public String alterTable(String tableName, String alterationType, String attributeName) {
         tableName = tableName.toLowerCase();
-        Table table = tables.get(tableName);
+        Table table = getTable(tableName);
         if (table == null) {
             return "[ERROR] Table " + tableName + " does not exist";
         }
 
+        table.getLock().writeLock().lock();
         try {
             boolean success;
             if (alterationType.equalsIgnoreCase("ADD")) {
@@ -225,57 +473,72 @@ public class Database {
                 if (!success) {
                     return "[ERROR] Cannot drop column: " + attributeName;
                 }
+                saveIndexes(table);
             } else {
                 return "[ERROR] Invalid alteration type: " + alterationType;
             }
-            saveTable(table);
+            // Logged like any other change, the snapshot catches up at the next fold
+            logStatement(table, log -> log.appendAlter(alterationType, attributeName));
             return "[OK]";
         } catch (Exception e) {
             return "[ERROR] " + e.getMessage();
+        } finally {
+            table.getLock().writeLock().unlock();
         }
     }
 
     public String update(String tableName, List<String> nameValuePairs, String condition) {
         tableName = tableName.toLowerCase();
-        Table table = tables.get(tableName);
+        Table table = getTable(tableName);
         if (table == null) {
             return "[ERROR] Table " + tableName + " does not exist";
         }
 
+        table.getLock().writeLock().lock();
         try {
-            // Iterate through all name-value pairs
-            for (String pair : nameValuePairs) {
-                String[] parts = pair.split("=");
-                if (parts.length != 2) {
-                    return "[ERROR] Invalid name-value pair: " + pair;
-                }
-                String columnName = parts[0].trim();
-                String value = parts[1].trim();
-                if (!table.columnNameExists(columnName)) {
-                    return "[ERROR] Column does not exist: " + columnName;
+            try {
+                // Iterate through all name-value pairs
+                for (String pair : nameValuePairs) {
+                    String[] parts = pair.split("=");
+                    if (parts.length != 2) {
+                        return "[ERROR] Invalid name-value pair: " + pair;
+                    }
+                    String columnName = parts[0].trim();
+                    String value = parts[1].trim();
+                    if (!table.columnNameExists(columnName)) {
+                        return "[ERROR] Column does not exist: " + columnName;
+                    }
+                    table.updateRows(columnName, value, condition);
                 }
-                table.updateRows(columnName, value, condition);
+            } finally {
+                // Pairs applied before a failing one stay applied, so they must be logged too
+                logStatement(table, log -> log.appendChanges(table.takeDirtyRows()));
             }
-            saveTable(table);
             return "[OK]";
         } catch (Exception e) {
             return "[ERROR] " + e.getMessage();
+        } finally {
+            table.getLock().writeLock().unlock();
         }
     }
 
     public String delete(String tableName, String condition) {
         tableName = tableName.toLowerCase();
-        Table table = tables.get(tableName);
+        Table table = getTable(tableName);
         if (table == null) {
             return "[ERROR] Table " + tableName + " does not exist";
         }
 
+        table.getLock().writeLock().lock();
         try {
-            table.deleteRows(condition);
-            saveTable(table);
+            if (table.deleteRows(condition)) {
+                logStatement(table, log -> log.appendChanges(table.takeDirtyRows()));
+            }
             return "[OK]";
         } catch (Exception e) {
             return "[ERROR] " + e.getMessage();
+        } finally {
+            table.getLock().writeLock().unlock();
         }
     }
 
@@ -306,14 +569,38 @@ public class Database {
 
     public String dropTable(String tableName) {
         tableName = tableName.toLowerCase();
-        if (!tables.containsKey(tableName)) {
+        if (!tableExists(tableName)) {
             return "[ERROR] Table " + tableName + " does not exist";
         }
-        File tableFile = new File(path, tableName + ".tab");
-        if (tableFile.exists() && !tableFile.delete()) {
-            return "[ERROR] Failed to delete table file";
+        // Let a background load finish before its files disappear
+        getTable(tableName);
+        // A table that was never loaded has no open log yet
+        TableLog log = logs.containsKey(tableName) ? logs.get(tableName)
+                : new TableLog(path, tableName, StorageConfig.tableFormat(tableName));
+        Table table = tables.get(tableName);
+        if (table != null) {
+            // Wait for a running checkpoint of this table
+            table.getLock().writeLock().lock();
         }
+        try {
+            persistence.forget(log);
+            if (!log.delete()) {
+                return "[ERROR] Failed to delete table file";
+            }
+            Files.deleteIfExists(indexFile(tableName).toPath());
+        } catch (IOException e) {
+            return "[ERROR] Failed to delete table file: " + e.getMessage();
+        } finally {
+            if (table != null) {
+                table.getLock().writeLock().unlock();
+            }
+        }
+        unloadedTables().remove(tableName);
         tables.remove(tableName);
+        if (table != null) {
+            table.close();
+        }
+        logs.remove(tableName);
         return "[OK]";
     }
 
@@ -364,7 +651,7 @@ public class Database {
     }
     
     private Table validateTableExists(String tableName) {
-        return tables.get(tableName);
+        return getTable(tableName);
     }
     
     private boolean validateColumnExists(Table table, String columnName) {
@@ -390,18 +677,22 @@ public class Database {
     private List<List<String>> performJoin(Table table1, Table table2, int index1, int index2) {
         List<List<String>> joinedRows = new ArrayList<>();
         
-        // For each row in table1
-        for (List<String> row1 : table1.getRows()) {
-            String value1 = row1.get(index1);
-            
+        List<Integer> slots2 = table2.liveSlots();
+        // For each row in table1, reading only the join column until rows match
+        for (int row1 : table1.liveSlots()) {
+            String value1 = table1.getCell(row1, index1);
+
+            // An index on the second join column narrows it down to rows equal ignoring case
+            BitSet candidates = value1.equals("NULL") ? null : table2.findIndexed(index2, "==", value1);
+
             // Find matching rows in table2
-            for (List<String> row2 : table2.getRows()) {
-                String value2 = row2.get(index2);
+            for (int row2 : candidates != null ? slotsOf(candidates) : slots2) {
+                String value2 = table2.getCell(row2, index2);
                 
                 // If values match, create a joined row
                 if (value1.equals(value2)) {
-                    List<String> joinedRow = new ArrayList<>(row1);
-                    joinedRow.addAll(row2);
+                    List<String> joinedRow = table1.getRow(row1);
+                    joinedRow.addAll(table2.getRow(row2));
                     joinedRows.add(joinedRow);
                 }
             }
@@ -410,21 +701,101 @@ public class Database {
         return joinedRows;
     }
     
+    private List<Integer> slotsOf(BitSet bits) {
+        List<Integer> slots = new ArrayList<>(bits.cardinality());
+        for (int slot = bits.nextSetBit(0); slot >= 0; slot = bits.nextSetBit(slot + 1)) {
+            slots.add(slot);
+        }
+        return slots;
+    }
+
     private void formatJoinResults(List<List<String>> joinedRows, StringBuilder result) {
         for (List<String> row : joinedRows) {
             result.append(String.join("\t", row)).append("\n");
         }
     }
 
+    // Rewrite the whole snapshot, used for new tables and to replace a log that lost a record
     private void saveTable(Table table) throws IOException {
-        File tableFile = new File(path, table.getName() + ".tab");
-        List<String> lines = new ArrayList<>();
+        logs.get(table.getName()).writeSnapshot(new ArrayList<>(table.getColumnNames()), snapshotRows(table));
+    }
+
+    private interface LogAppend {
+        void to(TableLog log) throws IOException;
+    }
 
-        lines.add(String.join("\t", table.getColumnNames()));
-        for (List<String> row : table.getRows()) {
-            lines.add(String.join("\t", row));
+    /**
+     * Log a statement that has already been applied to the table. A log that lost
+     * a record is replaced by a snapshot of the table instead, which includes it.
+     */
+    private void logStatement(Table table, LogAppend append) throws IOException {
+        TableLog log = logs.get(table.getName());
+        if (log.hasFailed()) {
+            table.takeDirtyRows();
+            saveTable(table);
+        } else {
+            append.to(log);
+            foldLogIfNeeded(table);
+        }
+        persistence.commit(log);
+    }
+
+    private void foldLogIfNeeded(Table table) throws IOException {
+        TableLog log = logs.get(table.getName());
+        if (log.needsFold(table.getRowCount())) {
+            purgeColumnsIfNeeded(table);
+            log.fold(new ArrayList<>(table.getColumnNames()), snapshotRows(table));
+        }
+    }
+
+    /**
+     * Dropped columns are removed when a fold rewrites the snapshot anyway. This runs
+     * on the command thread, so no SELECT can be reading the rows being rewritten.
+     */
+    private void purgeColumnsIfNeeded(Table table) {
+        if (!table.needsColumnPurge()) {
+            return;
+        }
+        // Keeps a checkpoint from copying the rows halfway through the purge
+        table.getLock().writeLock().lock();
+        try {
+            table.purgeDroppedColumns();
+        } finally {
+            table.getLock().writeLock().unlock();
+        }
+    }
+
+    // getRows() copies every row, so the background fold never touches live rows
+    private List<List<String>> snapshotRows(Table table) {
+        return table.getRows();
+    }
+
+    /**
+     * Wait for background log folds, force pending records and release the log files,
+     * then the memory and scratch files of every loaded table
+     */
+    public void close() {
+        awaitPreload();
+        for (Map.Entry<String, TableLog> entry : logs.entrySet()) {
+            TableLog log = entry.getValue();
+            Table table = tables.get(entry.getKey());
+            // A running checkpoint must finish before the log is released
+            table.getLock().writeLock().lock();
+            try {
+                persistence.forget(log);
+            } finally {
+                table.getLock().writeLock().unlock();
+            }
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println("Error closing table log: " + e.getMessage());
+            }
+            // The log holds every change, so the store can go once the log is closed
+            table.close();
         }
-        Files.write(tableFile.toPath(), lines);
+        tables.clear();
+        logs.clear();
     }
 
     public String executeQuery(String query) {
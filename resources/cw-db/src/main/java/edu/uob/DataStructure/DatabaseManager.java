@@ -14,15 +14,17 @@ import java.util.Map;
 public class DatabaseManager {
     private final String storageFolderPath;
     private final Map<String, Database> databases;
+    private final PersistenceManager persistence;
 
     public DatabaseManager(String storageFolderPath) {
         this.storageFolderPath = storageFolderPath;
         this.databases = new HashMap<>();
+        this.persistence = new PersistenceManager(StorageConfig.durabilityPolicy());
         loadDatabases();
     }
 
     /**
-     * Load all existing databases from storage
+     * Register all existing databases from storage, their tables are only read when first used
      */
     private void loadDatabases() {
         File storageFolder = new File(storageFolderPath);
@@ -41,13 +43,19 @@ public class DatabaseManager {
             for (File folder : databaseFolders) {
                 try {
                     String dbName = folder.getName().toLowerCase();
-                    databases.put(dbName, new Database(dbName, folder.getPath()));
+                    databases.put(dbName, new Database(dbName, folder.getPath(), persistence));
                 } catch (Exception e) {
                     System.err.println("Error loading database " + folder.getName() + ": " + e.getMessage());
                     // Continue processing the next database
                 }
             }
         }
+        if (StorageConfig.preload().equals("all")) {
+            // Tables of all databases share the loader pool, so a cold start uses every core
+            for (Database database : databases.values()) {
+                database.preloadTables();
+            }
+        }
     }
 
     /**
@@ -62,7 +70,7 @@ public class DatabaseManager {
         String dbPath = storageFolderPath + File.separator + name;
         try {
             Files.createDirectories(Paths.get(dbPath));
-            databases.put(name, new Database(name, dbPath));
+            databases.put(name, new Database(name, dbPath, persistence));
             return "[OK]";
         } catch (IOException e) {
             return "[ERROR] Failed to create database: " + e.getMessage();
@@ -82,6 +90,7 @@ public class DatabaseManager {
         File dbDirectory = new File(dbPath);
 
         try {
+            databases.get(name).close();
             File[] files = dbDirectory.listFiles();
             if (files != null) {
                 for (File file : files) {
@@ -113,4 +122,26 @@ public class DatabaseManager {
         return databases.get(name.toLowerCase());
     }
 
+    /**
+     * Close every database and stop the background flushes and checkpoints
+     */
+    public void close() {
+        for (Database database : databases.values()) {
+            database.close();
+        }
+        persistence.close();
+    }
+
+    /**
+     * Force every acknowledged change of every database to disk
+     */
+    public String flush() {
+        try {
+            persistence.flushAll();
+            return "[OK]";
+        } catch (IOException e) {
+            return "[ERROR] Flush failed: " + e.getMessage();
+        }
+    }
+
 }
\ No newline at end of file
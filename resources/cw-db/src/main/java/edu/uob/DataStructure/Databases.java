@@ -20,6 +20,9 @@ public class Databases{
             return "[ERROR] Database does not exist: " + name;
         }
         currentDatabase = dbManager.getDatabase(name);
+        if (StorageConfig.preload().equals("use")) {
+            currentDatabase.preloadTables();
+        }
         return "[OK] Switched to database " + name;
     }
     public Database getCurrentDatabase(){
@@ -29,6 +32,15 @@ public class Databases{
         return dbManager.createDatabase(name);
     }
 
+    public String flush() {
+        return dbManager.flush();
+    }
+
+    public void close() {
+        currentDatabase = null;
+        dbManager.close();
+    }
+
     public String dropDatabase(String databaseName) {
         if (currentDatabase != null && currentDatabase.getName().equalsIgnoreCase(databaseName)) {
             currentDatabase = null;
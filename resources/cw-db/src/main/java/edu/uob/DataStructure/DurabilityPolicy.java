@@ -0,0 +1,25 @@
+package edu.uob.DataStructure;
+
+/**
+ * When appended log records are forced to disk
+ */
+public enum DurabilityPolicy {
+    // fsync before a mutating statement returns
+    EVERY_STATEMENT,
+    // fsync every table with pending records on a fixed timer
+    INTERVAL,
+    // fsync only when a log is folded into its snapshot or on an explicit flush
+    ON_CHECKPOINT;
+
+    public static DurabilityPolicy fromName(String name) {
+        switch (name.trim().toLowerCase()) {
+            case "interval":
+                return INTERVAL;
+            case "checkpoint":
+                return ON_CHECKPOINT;
+            case "statement":
+            default:
+                return EVERY_STATEMENT;
+        }
+    }
+}
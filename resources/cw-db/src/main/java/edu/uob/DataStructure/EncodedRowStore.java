@@ -0,0 +1,177 @@
+package edu.uob.DataStructure;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Base for stores that keep rows outside the Java heap as records encoded by {@link RowCodec}.
+ *
+ * <p>Records are appended to a {@link Space}; the heap only holds the address and
+ * length of each row, and cells are decoded when they are read. An updated row is
+ * written again at the end and its old record becomes garbage. Once garbage outweighs
+ * the live data the rows are copied to a fresh space and the old one is released.
+ */
+public abstract class EncodedRowStore implements RowStore {
+    private static final long MIN_COMPACT_BYTES = 1L << 20;
+
+    /**
+     * Append-only storage for encoded records
+     */
+    protected interface Space {
+        // Returns the address of the record
+        long append(byte[] record);
+
+        byte[] read(long address, int length);
+
+        // Bytes appended so far
+        long size();
+
+        void release();
+    }
+
+    private Space space;
+    private long[] addresses = new long[16];
+    private int[] lengths = new int[16];
+    private int size;
+    private int columnCount;
+    private long garbageBytes;
+    private boolean closed;
+
+    protected abstract Space newSpace();
+
+    private Space space() {
+        if (closed) {
+            throw new IllegalStateException("Row store has been closed");
+        }
+        if (space == null) {
+            space = newSpace();
+        }
+        return space;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getCell(int slot, int column) {
+        return RowCodec.decodeCell(readRecord(slot), column);
+    }
+
+    @Override
+    public List<String> getRow(int slot) {
+        return RowCodec.decode(readRecord(slot), columnCount);
+    }
+
+    @Override
+    public void setCell(int slot, int column, String value) {
+        List<String> row = getRow(slot);
+        row.set(column, value);
+        setRow(slot, row);
+    }
+
+    // One new record instead of one per cell
+    @Override
+    public void setRow(int slot, List<String> row) {
+        checkSlot(slot);
+        garbageBytes += lengths[slot];
+        writeRecord(slot, RowCodec.encode(row));
+        compactIfNeeded();
+    }
+
+    @Override
+    public void appendRow(List<String> row) {
+        if (size == addresses.length) {
+            addresses = Arrays.copyOf(addresses, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        columnCount = Math.max(columnCount, row.size());
+        writeRecord(size++, RowCodec.encode(row));
+    }
+
+    @Override
+    public void removeRows(BitSet slots) {
+        int kept = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (slots.get(slot)) {
+                garbageBytes += lengths[slot];
+            } else {
+                addresses[kept] = addresses[slot];
+                lengths[kept] = lengths[slot];
+                kept++;
+            }
+        }
+        size = kept;
+        compactIfNeeded();
+    }
+
+    // Rows written before the column existed decode it as NULL
+    @Override
+    public void addColumn() {
+        columnCount++;
+    }
+
+    @Override
+    public void dropColumn(int column) {
+        columnCount--;
+        rewrite(column);
+    }
+
+    /**
+     * Release the space right away instead of waiting for the garbage collector.
+     * The store cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (space != null) {
+            space.release();
+            space = null;
+        }
+        closed = true;
+    }
+
+    private void compactIfNeeded() {
+        if (garbageBytes > MIN_COMPACT_BYTES && garbageBytes > space().size() / 2) {
+            rewrite(-1);
+        }
+    }
+
+    // Copy the live rows to a new space, leaving out one column unless droppedColumn is -1
+    private void rewrite(int droppedColumn) {
+        Space oldSpace = space();
+        long[] oldAddresses = addresses;
+        int[] oldLengths = lengths;
+        space = newSpace();
+        addresses = new long[Math.max(16, size)];
+        lengths = new int[addresses.length];
+        garbageBytes = 0;
+        for (int slot = 0; slot < size; slot++) {
+            byte[] record = oldSpace.read(oldAddresses[slot], oldLengths[slot]);
+            if (droppedColumn >= 0) {
+                List<String> row = RowCodec.decode(record, columnCount + 1);
+                row.remove(droppedColumn);
+                record = RowCodec.encode(row);
+            }
+            writeRecord(slot, record);
+        }
+        oldSpace.release();
+    }
+
+    private byte[] readRecord(int slot) {
+        checkSlot(slot);
+        return space().read(addresses[slot], lengths[slot]);
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Row " + slot + " of " + size);
+        }
+    }
+
+    private void writeRecord(int slot, byte[] record) {
+        addresses[slot] = space().append(record);
+        lengths[slot] = record.length;
+    }
+}
@@ -0,0 +1,68 @@
+package edu.uob.DataStructure;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Answers == by looking the value up in a hash map from value to slots.
+ * Keys are case-folded the way {@link String#equalsIgnoreCase} compares, so a
+ * lookup matches exactly the rows a scan would.
+ */
+class HashIndex implements ColumnIndex {
+    static final String TYPE = "HASH";
+
+    private final Map<String, SlotList> slotsByKey = new HashMap<>();
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public void add(int slot, String value) {
+        if (value.equals("NULL")) {
+            return;
+        }
+        slotsByKey.computeIfAbsent(fold(value), key -> new SlotList()).add(slot);
+    }
+
+    @Override
+    public void remove(int slot, String value) {
+        String key = fold(value);
+        SlotList slots = slotsByKey.get(key);
+        if (slots == null) {
+            return;
+        }
+        slots.remove(slot);
+        if (slots.isEmpty()) {
+            slotsByKey.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        slotsByKey.clear();
+    }
+
+    @Override
+    public BitSet find(String operator, String value) {
+        if (!operator.equals("==")) {
+            return null;
+        }
+        BitSet result = new BitSet();
+        SlotList slots = value.equals("NULL") ? null : slotsByKey.get(fold(value));
+        if (slots != null) {
+            slots.addTo(result);
+        }
+        return result;
+    }
+
+    static String fold(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,85 @@
+package edu.uob.DataStructure;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Keeps every row on the heap as a list of strings. Rows written before a column
+ * was added are shorter than the others and read NULL for it.
+ */
+public class HeapRowStore implements RowStore {
+    private final List<List<String>> rows;
+    private int columnCount;
+
+    public HeapRowStore() {
+        this.rows = new ArrayList<>();
+    }
+
+    @Override
+    public int size() {
+        return rows.size();
+    }
+
+    @Override
+    public String getCell(int slot, int column) {
+        List<String> row = rows.get(slot);
+        return column < row.size() ? row.get(column) : "NULL";
+    }
+
+    @Override
+    public List<String> getRow(int slot) {
+        List<String> row = new ArrayList<>(rows.get(slot));
+        while (row.size() < columnCount) {
+            row.add("NULL");
+        }
+        return row;
+    }
+
+    @Override
+    public void setCell(int slot, int column, String value) {
+        List<String> row = rows.get(slot);
+        while (row.size() <= column) {
+            row.add("NULL");
+        }
+        row.set(column, value);
+    }
+
+    @Override
+    public void setRow(int slot, List<String> row) {
+        rows.set(slot, new ArrayList<>(row));
+    }
+
+    @Override
+    public void appendRow(List<String> row) {
+        columnCount = Math.max(columnCount, row.size());
+        rows.add(row);
+    }
+
+    @Override
+    public void removeRows(BitSet slots) {
+        // Single pass instead of shifting the list once per removed row
+        int kept = 0;
+        for (int slot = 0; slot < rows.size(); slot++) {
+            if (!slots.get(slot)) {
+                rows.set(kept++, rows.get(slot));
+            }
+        }
+        rows.subList(kept, rows.size()).clear();
+    }
+
+    @Override
+    public void addColumn() {
+        columnCount++;
+    }
+
+    @Override
+    public void dropColumn(int column) {
+        columnCount--;
+        for (List<String> row : rows) {
+            if (column < row.size()) {
+                row.remove(column);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package edu.uob.DataStructure;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The columns of a table as the user sees them, over a store that may still hold
+ * dropped columns. Each visible column maps to a physical column of the store.
+ * ALTER TABLE only edits that mapping: an added column is read as NULL until it
+ * is written, and a dropped column is physically removed later, when the table is
+ * compacted or its log is folded.
+ */
+class LogicalRowStore implements RowStore {
+    private static final String NULL = "NULL";
+
+    private final RowStore store;
+    // Physical column of each visible column, always in increasing order
+    private final List<Integer> physicalColumns;
+    private int physicalCount;
+
+    LogicalRowStore(RowStore store, int columnCount) {
+        this.store = store;
+        this.physicalColumns = new ArrayList<>(columnCount);
+        for (int column = 0; column < columnCount; column++) {
+            physicalColumns.add(column);
+        }
+        this.physicalCount = columnCount;
+    }
+
+    int droppedColumnCount() {
+        return physicalCount - physicalColumns.size();
+    }
+
+    private int physical(int column) {
+        return physicalColumns.get(column);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public String getCell(int slot, int column) {
+        return store.getCell(slot, physical(column));
+    }
+
+    @Override
+    public List<String> getRow(int slot) {
+        if (droppedColumnCount() == 0) {
+            return store.getRow(slot);
+        }
+        List<String> row = new ArrayList<>(physicalColumns.size());
+        for (int column : physicalColumns) {
+            row.add(store.getCell(slot, column));
+        }
+        return row;
+    }
+
+    @Override
+    public void setCell(int slot, int column, String value) {
+        store.setCell(slot, physical(column), value);
+    }
+
+    @Override
+    public void setRow(int slot, List<String> row) {
+        store.setRow(slot, toPhysical(row));
+    }
+
+    @Override
+    public void appendRow(List<String> row) {
+        store.appendRow(toPhysical(row));
+    }
+
+    // Dropped columns are written as NULL
+    private List<String> toPhysical(List<String> row) {
+        if (droppedColumnCount() == 0) {
+            return row;
+        }
+        List<String> physicalRow = new ArrayList<>(physicalCount);
+        for (int column = 0; column < physicalCount; column++) {
+            physicalRow.add(NULL);
+        }
+        for (int column = 0; column < row.size(); column++) {
+            physicalRow.set(physical(column), row.get(column));
+        }
+        return physicalRow;
+    }
+
+    @Override
+    public void removeRows(BitSet slots) {
+        store.removeRows(slots);
+    }
+
+    @Override
+    public void addColumn() {
+        physicalColumns.add(physicalCount++);
+        store.addColumn();
+    }
+
+    // Only forgets the mapping; purgeDroppedColumns removes the data
+    @Override
+    public void dropColumn(int column) {
+        physicalColumns.remove(column);
+    }
+
+    /**
+     * Remove the data of every dropped column from the store
+     */
+    void purgeDroppedColumns() {
+        for (int column = physicalCount - 1; column >= 0; column--) {
+            if (!physicalColumns.contains(column)) {
+                store.dropColumn(column);
+            }
+        }
+        physicalCount = physicalColumns.size();
+        for (int column = 0; column < physicalCount; column++) {
+            physicalColumns.set(column, column);
+        }
+    }
+
+    @Override
+    public ColumnType columnType(int column) {
+        return store.columnType(physical(column));
+    }
+
+    @Override
+    public boolean isNull(int slot, int column) {
+        return store.isNull(slot, physical(column));
+    }
+
+    @Override
+    public double getNumber(int slot, int column) {
+        return store.getNumber(slot, physical(column));
+    }
+
+    @Override
+    public List<String> dictionary(int column) {
+        return store.dictionary(physical(column));
+    }
+
+    @Override
+    public int getCode(int slot, int column) {
+        return store.getCode(slot, physical(column));
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+}
@@ -0,0 +1,590 @@
+package edu.uob.DataStructure;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Log-structured storage for append-heavy tables.
+ *
+ * <p>New and changed rows go to an in-memory memtable sorted by id. A full memtable is
+ * written out as an immutable, sorted segment file ({@code <table>.seg.<n>} in the
+ * database folder) and a new one is started, so an insert never rewrites older data.
+ * Deletes are tombstones in the memtable. A row is read from the memtable first and
+ * then from the segments, newest first; each segment keeps a sparse index of every
+ * {@value #BLOCK_ROWS}th id on the heap. Segments are merged on a background thread
+ * by size tier: starting from the newest, the run takes each older segment that is
+ * no larger than the newer ones in the run together, and is merged once it holds
+ * {@value #MERGE_FAN_IN} segments. A row is only rewritten into a segment at least
+ * twice the size of its old one, so each row is rewritten O(log n) times and older,
+ * larger segments are left alone by most merges. Merged segments are
+ * cold, so they can be written with deflate-compressed blocks, which are inflated
+ * one block at a time as rows are read.
+ *
+ * <p>Like the paged store, segments are working storage: the snapshot and table log
+ * stay the durable copy, and segments are deleted when the table is closed.
+ */
+public class LsmRowStore implements RowStore {
+    private static final int BLOCK_ROWS = 32;
+    private static final int MERGE_FAN_IN = 4;
+    private static final String SEGMENT_SUFFIX = ".seg.";
+    // Memtable value of a deleted row
+    private static final List<String> DELETED = new ArrayList<>();
+
+    // One shared daemon thread merges segments for every table
+    private static final ExecutorService MERGER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lsm-merger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Numeric ids in numeric order, anything else after them in text order
+     */
+    static final Comparator<String> ID_ORDER = (a, b) -> {
+        boolean aNumeric = isSmallNumber(a);
+        boolean bNumeric = isSmallNumber(b);
+        if (aNumeric && bNumeric) {
+            int order = Long.compare(Long.parseLong(a), Long.parseLong(b));
+            // Keeps "7" and "007" apart
+            return order != 0 ? order : a.compareTo(b);
+        }
+        if (aNumeric != bNumeric) {
+            return aNumeric ? -1 : 1;
+        }
+        return a.compareTo(b);
+    };
+
+    private final File directory;
+    private final String tableName;
+    private final int memtableRows;
+    // Merged segments hold the cold data, they are block-compressed if this is set
+    private final boolean compressMerged;
+    private TreeMap<String, List<String>> memtable;
+    // Newest first
+    private final List<Segment> segments;
+    // Id of the row in each slot, in insertion order
+    private List<String> slotIds;
+    private int columnCount;
+    private int nextSegmentNumber;
+    private boolean merging;
+    private boolean closed;
+
+    public LsmRowStore(File directory, String tableName, int memtableRows, boolean compressMerged) {
+        this.directory = directory;
+        this.tableName = tableName;
+        this.memtableRows = Math.max(1, memtableRows);
+        this.compressMerged = compressMerged;
+        this.memtable = new TreeMap<>(ID_ORDER);
+        this.segments = new ArrayList<>();
+        this.slotIds = new ArrayList<>();
+        deleteStaleSegments();
+    }
+
+    // Segments left behind by a crash are not needed, the snapshot and log are replayed instead
+    private void deleteStaleSegments() {
+        File[] stale = directory.listFiles((dir, fileName) -> fileName.startsWith(tableName + SEGMENT_SUFFIX));
+        if (stale != null) {
+            for (File file : stale) {
+                if (!file.delete()) {
+                    System.err.println("Warning: Could not delete old segment " + file.getName());
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return slotIds.size();
+    }
+
+    @Override
+    public synchronized String getCell(int slot, int column) {
+        String id = slotIds.get(slot);
+        List<String> row = memtable.get(id);
+        if (row != null) {
+            return column < row.size() ? row.get(column) : "NULL";
+        }
+        byte[] record = findInSegments(id);
+        return record == null ? "NULL" : RowCodec.decodeCell(record, column);
+    }
+
+    @Override
+    public synchronized List<String> getRow(int slot) {
+        String id = slotIds.get(slot);
+        List<String> row = memtable.get(id);
+        if (row != null) {
+            List<String> copy = new ArrayList<>(row);
+            while (copy.size() < columnCount) {
+                copy.add("NULL");
+            }
+            return copy;
+        }
+        byte[] record = findInSegments(id);
+        if (record == null) {
+            throw new IllegalStateException("Row " + id + " of " + tableName + " is missing from its segments");
+        }
+        return RowCodec.decode(record, columnCount);
+    }
+
+    @Override
+    public synchronized void setCell(int slot, int column, String value) {
+        List<String> row = getRow(slot);
+        row.set(column, value);
+        put(row);
+    }
+
+    @Override
+    public synchronized void setRow(int slot, List<String> row) {
+        put(new ArrayList<>(row));
+    }
+
+    @Override
+    public synchronized void appendRow(List<String> row) {
+        columnCount = Math.max(columnCount, row.size());
+        slotIds.add(row.get(0));
+        put(row);
+    }
+
+    @Override
+    public synchronized void removeRows(BitSet slots) {
+        List<String> kept = new ArrayList<>(slotIds.size() - slots.cardinality());
+        for (int slot = 0; slot < slotIds.size(); slot++) {
+            if (slots.get(slot)) {
+                memtable.put(slotIds.get(slot), DELETED);
+            } else {
+                kept.add(slotIds.get(slot));
+            }
+        }
+        slotIds = kept;
+        flushIfFull();
+    }
+
+    // Rows written before the column existed decode it as NULL
+    @Override
+    public synchronized void addColumn() {
+        columnCount++;
+    }
+
+    // Every row changes, so all of them are written again as one new segment
+    @Override
+    public synchronized void dropColumn(int column) {
+        List<List<String>> rows = new ArrayList<>(slotIds.size());
+        for (int slot = 0; slot < slotIds.size(); slot++) {
+            List<String> row = getRow(slot);
+            row.remove(column);
+            rows.add(row);
+        }
+        columnCount--;
+        deleteSegments(segments);
+        segments.clear();
+        memtable = new TreeMap<>(ID_ORDER);
+        for (List<String> row : rows) {
+            memtable.put(row.get(0), row);
+        }
+        flushMemtable();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        deleteSegments(segments);
+        segments.clear();
+        memtable.clear();
+    }
+
+    /**
+     * Number of segment files, for tests and diagnostics
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    private void put(List<String> row) {
+        memtable.put(row.get(0), row);
+        flushIfFull();
+    }
+
+    private void flushIfFull() {
+        if (memtable.size() >= memtableRows) {
+            flushMemtable();
+        }
+    }
+
+    private void flushMemtable() {
+        if (memtable.isEmpty()) {
+            return;
+        }
+        try {
+            File file = new File(directory, tableName + SEGMENT_SUFFIX + nextSegmentNumber++);
+            segments.add(0, Segment.write(file, memtableRecords(memtable), false));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write segment for " + tableName, e);
+        }
+        memtable = new TreeMap<>(ID_ORDER);
+        scheduleMergeIfNeeded();
+    }
+
+    private static Iterator<Record> memtableRecords(TreeMap<String, List<String>> memtable) {
+        Iterator<Map.Entry<String, List<String>>> entries = memtable.entrySet().iterator();
+        return new Iterator<Record>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Record next() {
+                Map.Entry<String, List<String>> entry = entries.next();
+                byte[] row = entry.getValue() == DELETED ? null : RowCodec.encode(entry.getValue());
+                return new Record(entry.getKey(), row);
+            }
+        };
+    }
+
+    private byte[] findInSegments(String id) {
+        try {
+            for (Segment segment : segments) {
+                Record record = segment.find(id);
+                if (record != null) {
+                    return record.row;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read segment of " + tableName, e);
+        }
+    }
+
+    private void scheduleMergeIfNeeded() {
+        if (merging || closed) {
+            return;
+        }
+        int runLength = mergeRunLength();
+        if (runLength < MERGE_FAN_IN) {
+            return;
+        }
+        merging = true;
+        List<Segment> run = new ArrayList<>(segments.subList(0, runLength));
+        // Tombstones only shadow older segments, so they can be dropped when nothing is older
+        boolean includesOldest = runLength == segments.size();
+        File file = new File(directory, tableName + SEGMENT_SUFFIX + nextSegmentNumber++);
+        MERGER.submit(() -> merge(run, includesOldest, file));
+    }
+
+    // Newest segments whose sizes are in one tier: each is no larger than all newer ones together
+    private int mergeRunLength() {
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        long newerRecords = segments.get(0).recordCount;
+        int length = 1;
+        while (length < segments.size() && segments.get(length).recordCount <= newerRecords) {
+            newerRecords += segments.get(length).recordCount;
+            length++;
+        }
+        return length;
+    }
+
+    private void merge(List<Segment> run, boolean dropTombstones, File file) {
+        Segment merged = null;
+        try {
+            merged = Segment.write(file, mergedRecords(run, dropTombstones), compressMerged);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error merging segments of " + tableName + ": " + e.getMessage());
+            deleteQuietly(file);
+        }
+        synchronized (this) {
+            merging = false;
+            if (merged == null) {
+                return;
+            }
+            int start = segments.indexOf(run.get(0));
+            if (closed || start < 0) {
+                merged.delete();
+                return;
+            }
+            // Newer segments may have been flushed in front of the run meanwhile
+            segments.subList(start, start + run.size()).clear();
+            segments.add(start, merged);
+            deleteSegments(run);
+            scheduleMergeIfNeeded();
+        }
+    }
+
+    // K-way merge in id order, the newest segment wins for ids found in several
+    private static Iterator<Record> mergedRecords(List<Segment> run, boolean dropTombstones) throws IOException {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>((a, b) -> {
+            int order = ID_ORDER.compare(a.current.id, b.current.id);
+            return order != 0 ? order : Integer.compare(a.age, b.age);
+        });
+        for (int age = 0; age < run.size(); age++) {
+            Cursor cursor = new Cursor(run.get(age), age);
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return new Iterator<Record>() {
+            private Record next = advance();
+
+            private Record advance() {
+                try {
+                    while (!cursors.isEmpty()) {
+                        Cursor newest = cursors.poll();
+                        Record record = newest.current;
+                        requeue(newest);
+                        // Skip the same id in older segments
+                        while (!cursors.isEmpty() && cursors.peek().current.id.equals(record.id)) {
+                            requeue(cursors.poll());
+                        }
+                        if (record.row != null || !dropTombstones) {
+                            return record;
+                        }
+                    }
+                    return null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            private void requeue(Cursor cursor) throws IOException {
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Record next() {
+                Record record = next;
+                next = advance();
+                return record;
+            }
+        };
+    }
+
+    private void deleteSegments(List<Segment> toDelete) {
+        for (Segment segment : toDelete) {
+            segment.delete();
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            System.err.println("Warning: Could not delete " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean isSmallNumber(String value) {
+        int start = value.startsWith("-") ? 1 : 0;
+        if (value.length() == start || value.length() - start > 18) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // An encoded row, or a tombstone when row is null
+    private static final class Record {
+        private final String id;
+        private final byte[] row;
+
+        private Record(String id, byte[] row) {
+            this.id = id;
+            this.row = row;
+        }
+    }
+
+    /**
+     * An immutable sorted file of records: a live flag, an int length and either the
+     * encoded row or, for a tombstone, the id. Records are grouped in blocks of
+     * {@value #BLOCK_ROWS}; in a compressed segment each block is stored as an int raw
+     * length, an int compressed length and the deflated records.
+     */
+    private static final class Segment {
+        private final File file;
+        private final FileChannel channel;
+        private final boolean compressed;
+        // Id of the first record of each block and where the block starts
+        private final TreeMap<String, Long> blockIndex;
+        private final long[] blockStarts;
+        private final long length;
+        private final long recordCount;
+        // The most recently read block, scans read the blocks in order
+        private long cachedBlockStart = -1;
+        private List<Record> cachedBlock;
+
+        private Segment(File file, boolean compressed, TreeMap<String, Long> blockIndex, long length,
+                        long recordCount) throws IOException {
+            this.file = file;
+            this.compressed = compressed;
+            this.blockIndex = blockIndex;
+            this.blockStarts = blockIndex.values().stream().mapToLong(Long::longValue).toArray();
+            this.length = length;
+            this.recordCount = recordCount;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+
+        static Segment write(File file, Iterator<Record> records, boolean compressed) throws IOException {
+            TreeMap<String, Long> blockIndex = new TreeMap<>(ID_ORDER);
+            long offset = 0;
+            long recordCount = 0;
+            try (FileOutputStream output = new FileOutputStream(file);
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output))) {
+                ByteArrayOutputStream block = new ByteArrayOutputStream();
+                DataOutputStream blockData = new DataOutputStream(block);
+                int blockRows = 0;
+                while (records.hasNext()) {
+                    Record record = records.next();
+                    recordCount++;
+                    if (blockRows == 0) {
+                        blockIndex.put(record.id, offset);
+                    }
+                    byte[] payload = record.row != null ? record.row : record.id.getBytes(StandardCharsets.UTF_8);
+                    blockData.writeBoolean(record.row != null);
+                    blockData.writeInt(payload.length);
+                    blockData.write(payload);
+                    if (++blockRows == BLOCK_ROWS || !records.hasNext()) {
+                        offset += writeBlock(data, block.toByteArray(), compressed);
+                        block.reset();
+                        blockRows = 0;
+                    }
+                }
+            }
+            return new Segment(file, compressed, blockIndex, offset, recordCount);
+        }
+
+        private static int writeBlock(DataOutputStream data, byte[] block, boolean compressed) throws IOException {
+            if (!compressed) {
+                data.write(block);
+                return block.length;
+            }
+            byte[] deflated = BlockCompression.deflate(block);
+            data.writeInt(block.length);
+            data.writeInt(deflated.length);
+            data.write(deflated);
+            return 2 * Integer.BYTES + deflated.length;
+        }
+
+        // The record for an id, null if this segment does not have it
+        synchronized Record find(String id) throws IOException {
+            Map.Entry<String, Long> block = blockIndex.floorEntry(id);
+            if (block == null) {
+                return null;
+            }
+            if (cachedBlockStart != block.getValue()) {
+                cachedBlock = readBlock(block.getValue());
+                cachedBlockStart = block.getValue();
+            }
+            for (Record record : cachedBlock) {
+                if (record.id.equals(id)) {
+                    return record;
+                }
+            }
+            return null;
+        }
+
+        // Read and, for a compressed segment, inflate the block that starts at an offset
+        List<Record> readBlock(long start) throws IOException {
+            int block = Arrays.binarySearch(blockStarts, start);
+            long end = block + 1 < blockStarts.length ? blockStarts[block + 1] : length;
+            ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new EOFException("Segment " + file.getName() + " is truncated");
+                }
+            }
+            buffer.flip();
+            if (compressed) {
+                int rawLength = buffer.getInt();
+                byte[] deflated = new byte[buffer.getInt()];
+                buffer.get(deflated);
+                buffer = ByteBuffer.wrap(BlockCompression.inflate(deflated, rawLength));
+            }
+            List<Record> records = new ArrayList<>(BLOCK_ROWS);
+            while (buffer.hasRemaining()) {
+                records.add(readRecord(buffer));
+            }
+            return records;
+        }
+
+        private static Record readRecord(ByteBuffer buffer) {
+            boolean live = buffer.get() != 0;
+            byte[] payload = new byte[buffer.getInt()];
+            buffer.get(payload);
+            if (live) {
+                return new Record(RowCodec.decodeCell(payload, 0), payload);
+            }
+            return new Record(new String(payload, StandardCharsets.UTF_8), null);
+        }
+
+        void delete() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Warning: Could not close " + file.getName() + ": " + e.getMessage());
+            }
+            deleteQuietly(file);
+        }
+    }
+
+    /**
+     * Reads one segment front to back, block by block, during a merge
+     */
+    private static final class Cursor {
+        private final Segment segment;
+        private int nextBlock;
+        private final int age;
+        private Iterator<Record> block = Collections.emptyIterator();
+        private Record current;
+
+        private Cursor(Segment segment, int age) {
+            this.segment = segment;
+            this.age = age;
+        }
+
+        boolean advance() throws IOException {
+            while (!block.hasNext()) {
+                if (nextBlock == segment.blockStarts.length) {
+                    current = null;
+                    return false;
+                }
+                block = segment.readBlock(segment.blockStarts[nextBlock++]).iterator();
+            }
+            current = block.next();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package edu.uob.DataStructure;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads rows straight out of a memory-mapped {@code .tab} file.
+ *
+ * <p>Only the start and end offset of each line is kept on the heap; cells are
+ * decoded from the mapped buffer when they are read. Rows that are inserted or
+ * updated after the file was mapped live on the heap and shadow their line.
+ * Snapshots are installed by renaming a new file over the old one, so the mapping
+ * keeps seeing the file it was opened on.
+ */
+public class MappedRowStore implements RowStore {
+    private static final int NOT_MAPPED = -1;
+
+    private final MappedByteBuffer buffer;
+    // Field of the mapped line that holds each column, NOT_MAPPED for columns added later
+    private final List<Integer> fieldOfColumn;
+    private int[] lineStarts;
+    private int[] lineEnds;
+    private int size;
+    // Rows inserted or changed since the file was mapped, by slot
+    private Map<Integer, List<String>> heapRows;
+
+    private MappedRowStore(MappedByteBuffer buffer, int columnCount) {
+        this.buffer = buffer;
+        this.fieldOfColumn = new ArrayList<>();
+        for (int i = 0; i < columnCount; i++) {
+            fieldOfColumn.add(i);
+        }
+        this.lineStarts = new int[16];
+        this.lineEnds = new int[16];
+        this.heapRows = new HashMap<>();
+    }
+
+    /**
+     * Map a {@code .tab} file and index its rows, skipping the header line.
+     * Files over 2GB cannot be mapped in one buffer and return null.
+     */
+    public static MappedRowStore open(File file, int columnCount) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            MappedRowStore store = new MappedRowStore(buffer, columnCount);
+            store.indexLines();
+            return store;
+        }
+    }
+
+    private void indexLines() {
+        int limit = buffer.limit();
+        int start = 0;
+        boolean header = true;
+        while (start < limit) {
+            int end = start;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int next = end + 1;
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            if (!header) {
+                addLine(start, end);
+            }
+            header = false;
+            start = next;
+        }
+    }
+
+    private void addLine(int start, int end) {
+        if (size == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, size * 2);
+            lineEnds = Arrays.copyOf(lineEnds, size * 2);
+        }
+        lineStarts[size] = start;
+        lineEnds[size] = end;
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getCell(int slot, int column) {
+        List<String> heapRow = heapRows.get(slot);
+        if (heapRow != null) {
+            return heapRow.get(column);
+        }
+        int field = fieldOfColumn.get(column);
+        return field == NOT_MAPPED ? "NULL" : decodeField(slot, field);
+    }
+
+    // Same values as String.split("\t") padded with NULL, which is how .tab rows are loaded
+    private String decodeField(int slot, int field) {
+        int end = lineEnds[slot];
+        int position = lineStarts[slot];
+        for (int i = 0; i < field; i++) {
+            while (position < end && buffer.get(position) != '\t') {
+                position++;
+            }
+            if (position >= end) {
+                return "NULL";
+            }
+            position++;
+        }
+        int fieldEnd = position;
+        while (fieldEnd < end && buffer.get(fieldEnd) != '\t') {
+            fieldEnd++;
+        }
+        if (fieldEnd == position && field > 0 && onlyTabsUntil(fieldEnd, end)) {
+            // split() drops trailing empty fields
+            return "NULL";
+        }
+        byte[] bytes = new byte[fieldEnd - position];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean onlyTabsUntil(int position, int end) {
+        for (int i = position; i < end; i++) {
+            if (buffer.get(i) != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> getRow(int slot) {
+        List<String> heapRow = heapRows.get(slot);
+        if (heapRow != null) {
+            return new ArrayList<>(heapRow);
+        }
+        List<String> row = new ArrayList<>(fieldOfColumn.size());
+        for (int column = 0; column < fieldOfColumn.size(); column++) {
+            row.add(getCell(slot, column));
+        }
+        return row;
+    }
+
+    @Override
+    public void setCell(int slot, int column, String value) {
+        List<String> heapRow = heapRows.get(slot);
+        if (heapRow == null) {
+            heapRow = getRow(slot);
+            heapRows.put(slot, heapRow);
+        }
+        heapRow.set(column, value);
+    }
+
+    @Override
+    public void setRow(int slot, List<String> row) {
+        heapRows.put(slot, new ArrayList<>(row));
+    }
+
+    @Override
+    public void appendRow(List<String> row) {
+        addLine(0, 0);
+        heapRows.put(size - 1, row);
+    }
+
+    @Override
+    public void removeRows(BitSet slots) {
+        Map<Integer, List<String>> keptHeapRows = new HashMap<>();
+        int kept = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (slots.get(slot)) {
+                continue;
+            }
+            lineStarts[kept] = lineStarts[slot];
+            lineEnds[kept] = lineEnds[slot];
+            List<String> heapRow = heapRows.get(slot);
+            if (heapRow != null) {
+                keptHeapRows.put(kept, heapRow);
+            }
+            kept++;
+        }
+        size = kept;
+        heapRows = keptHeapRows;
+    }
+
+    // Schema changes only touch the column mapping and the heap rows, never the file
+    @Override
+    public void addColumn() {
+        fieldOfColumn.add(NOT_MAPPED);
+        for (List<String> heapRow : heapRows.values()) {
+            heapRow.add("NULL");
+        }
+    }
+
+    @Override
+    public void dropColumn(int column) {
+        fieldOfColumn.remove(column);
+        for (List<String> heapRow : heapRows.values()) {
+            heapRow.remove(column);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package edu.uob.DataStructure;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps rows in direct {@link ByteBuffer}s outside the Java heap. Each row is one
+ * compact record instead of a list of String objects, so large tables add almost
+ * nothing for the garbage collector to trace; only two small arrays per table
+ * (record addresses and lengths) live on the heap. Memory is allocated in chunks that
+ * start at {@value #MIN_CHUNK_BYTES} bytes and double up to {@value #MAX_CHUNK_BYTES},
+ * so a small table only takes what its rows need. Dropping or closing the table lets
+ * go of the chunks, and the garbage collector frees them once no reader holds one.
+ */
+public class OffHeapRowStore extends EncodedRowStore {
+    private static final int MIN_CHUNK_BYTES = 8 * 1024;
+    private static final int MAX_CHUNK_BYTES = 4 * 1024 * 1024;
+
+    @Override
+    protected Space newSpace() {
+        return new ChunkedSpace();
+    }
+
+    private static final class ChunkedSpace implements Space {
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        // Address of the first byte of each chunk
+        private long[] chunkStarts = new long[8];
+        private long capacity;
+        private long endOffset;
+
+        @Override
+        public long append(byte[] record) {
+            long address = endOffset;
+            while (endOffset + record.length > capacity) {
+                addChunk();
+            }
+            copy(address, record, true);
+            endOffset += record.length;
+            return address;
+        }
+
+        // Each chunk is as large as all before it together, up to the maximum
+        private void addChunk() {
+            int chunkBytes = (int) Math.min(MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, capacity));
+            if (chunks.size() == chunkStarts.length) {
+                chunkStarts = Arrays.copyOf(chunkStarts, chunks.size() * 2);
+            }
+            chunkStarts[chunks.size()] = capacity;
+            chunks.add(ByteBuffer.allocateDirect(chunkBytes));
+            capacity += chunkBytes;
+        }
+
+        @Override
+        public byte[] read(long address, int length) {
+            byte[] record = new byte[length];
+            copy(address, record, false);
+            return record;
+        }
+
+        @Override
+        public long size() {
+            return endOffset;
+        }
+
+        @Override
+        public void release() {
+            // A SELECT may still be copying from a chunk, so the garbage collector frees them
+            chunks.clear();
+            capacity = 0;
+            endOffset = 0;
+        }
+
+        // Absolute gets and puts leave the buffer position alone, so concurrent readers are safe
+        private void copy(long address, byte[] bytes, boolean write) {
+            int done = 0;
+            int index = chunkOf(address);
+            while (done < bytes.length) {
+                ByteBuffer chunk = chunks.get(index);
+                int offset = (int) (address + done - chunkStarts[index]);
+                int length = Math.min(bytes.length - done, chunk.capacity() - offset);
+                if (write) {
+                    chunk.put(offset, bytes, done, length);
+                } else {
+                    chunk.get(offset, bytes, done, length);
+                }
+                done += length;
+                index++;
+            }
+        }
+
+        private int chunkOf(long address) {
+            int index = Arrays.binarySearch(chunkStarts, 0, chunks.size(), address);
+            return index >= 0 ? index : -index - 2;
+        }
+    }
+}
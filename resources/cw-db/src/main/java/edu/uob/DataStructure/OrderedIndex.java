@@ -0,0 +1,231 @@
+package edu.uob.DataStructure;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Answers comparisons from sorted maps, so a filter costs a tree descent plus the
+ * rows it returns. Cells are kept apart the
+ * way comparisons treat them: numbers by numeric value, other text in string order,
+ * and TRUE/FALSE on their own because they compare differently depending on the
+ * other side. Equal numbers keep their text apart, since {@code ==} compares text.
+ */
+class OrderedIndex implements ColumnIndex {
+    static final String TYPE = "ORDERED";
+
+    private final NavigableMap<Double, NavigableMap<String, SlotList>> numbers = new TreeMap<>();
+    private final NavigableMap<String, SlotList> strings = new TreeMap<>();
+    // Keys of strings that are equal ignoring case, by their folded form
+    private final Map<String, Set<String>> stringsByFold = new HashMap<>();
+    private final NavigableMap<String, SlotList> booleans = new TreeMap<>();
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public void add(int slot, String value) {
+        if (value.equals("NULL")) {
+            return;
+        }
+        if (ColumnType.isNumeric(value)) {
+            numbers.computeIfAbsent(numberKey(value), key -> new TreeMap<>())
+                    .computeIfAbsent(value, key -> new SlotList()).add(slot);
+        } else if (isBoolean(value)) {
+            booleans.computeIfAbsent(value, key -> new SlotList()).add(slot);
+        } else {
+            strings.computeIfAbsent(value, key -> {
+                stringsByFold.computeIfAbsent(HashIndex.fold(key), fold -> new HashSet<>()).add(key);
+                return new SlotList();
+            }).add(slot);
+        }
+    }
+
+    @Override
+    public void remove(int slot, String value) {
+        if (value.equals("NULL")) {
+            return;
+        }
+        if (ColumnType.isNumeric(value)) {
+            Double key = numberKey(value);
+            NavigableMap<String, SlotList> texts = numbers.get(key);
+            if (texts != null) {
+                removeFrom(texts, value, slot);
+                if (texts.isEmpty()) {
+                    numbers.remove(key);
+                }
+            }
+        } else if (isBoolean(value)) {
+            removeFrom(booleans, value, slot);
+        } else if (removeFrom(strings, value, slot)) {
+            String fold = HashIndex.fold(value);
+            Set<String> variants = stringsByFold.get(fold);
+            variants.remove(value);
+            if (variants.isEmpty()) {
+                stringsByFold.remove(fold);
+            }
+        }
+    }
+
+    // True if the key has no slots left and was removed
+    private static <K> boolean removeFrom(Map<K, SlotList> map, K key, int slot) {
+        SlotList slots = map.get(key);
+        if (slots != null) {
+            slots.remove(slot);
+            if (slots.isEmpty()) {
+                map.remove(key);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        numbers.clear();
+        strings.clear();
+        stringsByFold.clear();
+        booleans.clear();
+    }
+
+    @Override
+    public BitSet find(String operator, String value) {
+        if (operator.equals("==")) {
+            return findEqual(value);
+        }
+        if (operator.equals("!=")) {
+            return findNotEqual(value);
+        }
+        if (!operator.equals(">") && !operator.equals("<") && !operator.equals(">=") && !operator.equals("<=")) {
+            return null;
+        }
+        // Numbers compare to TRUE and FALSE as text, which is not kept for them
+        if (isBoolean(value)) {
+            return null;
+        }
+        BitSet result = new BitSet();
+        if (value.equals("NULL")) {
+            return result;
+        }
+        // A number never matches plain text, and the other way round
+        if (ColumnType.isNumeric(value)) {
+            for (NavigableMap<String, SlotList> texts : range(numbers, numberKey(value), operator).values()) {
+                addAll(texts, result);
+            }
+        } else {
+            addAll(range(strings, value, operator), result);
+        }
+        for (Map.Entry<String, SlotList> entry : booleans.entrySet()) {
+            if (holds(entry.getKey().compareTo(value), operator)) {
+                entry.getValue().addTo(result);
+            }
+        }
+        return result;
+    }
+
+    // == ignores case, and only cells of a comparable kind can be equal
+    private BitSet findEqual(String value) {
+        BitSet result = new BitSet();
+        if (value.equals("NULL")) {
+            return result;
+        }
+        if (ColumnType.isNumeric(value)) {
+            NavigableMap<String, SlotList> texts = numbers.get(numberKey(value));
+            SlotList slots = texts == null ? null : texts.get(value);
+            if (slots != null) {
+                slots.addTo(result);
+            }
+        } else if (isBoolean(value)) {
+            for (Map.Entry<String, SlotList> entry : booleans.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(value)) {
+                    entry.getValue().addTo(result);
+                }
+            }
+        } else {
+            for (String key : stringsByFold.getOrDefault(HashIndex.fold(value), Collections.emptySet())) {
+                strings.get(key).addTo(result);
+            }
+        }
+        return result;
+    }
+
+    // Numbers and plain text are never compared, TRUE and FALSE compare with both
+    private BitSet findNotEqual(String value) {
+        BitSet result = new BitSet();
+        if (value.equals("NULL")) {
+            return result;
+        }
+        boolean numeric = ColumnType.isNumeric(value);
+        boolean bool = isBoolean(value);
+        if (numeric || bool) {
+            for (NavigableMap<String, SlotList> texts : numbers.values()) {
+                for (Map.Entry<String, SlotList> entry : texts.entrySet()) {
+                    if (!entry.getKey().equals(value)) {
+                        entry.getValue().addTo(result);
+                    }
+                }
+            }
+        }
+        if (!numeric) {
+            for (Map.Entry<String, SlotList> entry : strings.entrySet()) {
+                if (!entry.getKey().equalsIgnoreCase(value)) {
+                    entry.getValue().addTo(result);
+                }
+            }
+        }
+        for (Map.Entry<String, SlotList> entry : booleans.entrySet()) {
+            if (!entry.getKey().equalsIgnoreCase(value)) {
+                entry.getValue().addTo(result);
+            }
+        }
+        return result;
+    }
+
+    // Adding 0.0 turns -0.0 into 0.0, which compare equal as numbers but not as Double keys
+    private static Double numberKey(String value) {
+        return Double.parseDouble(value) + 0.0;
+    }
+
+    private static <K, V> NavigableMap<K, V> range(NavigableMap<K, V> map, K key, String operator) {
+        switch (operator) {
+            case ">":
+                return map.tailMap(key, false);
+            case ">=":
+                return map.tailMap(key, true);
+            case "<":
+                return map.headMap(key, false);
+            default:
+                return map.headMap(key, true);
+        }
+    }
+
+    private static void addAll(Map<?, SlotList> map, BitSet result) {
+        for (SlotList slots : map.values()) {
+            slots.addTo(result);
+        }
+    }
+
+    private static boolean holds(int comparison, String operator) {
+        switch (operator) {
+            case ">":
+                return comparison > 0;
+            case ">=":
+                return comparison >= 0;
+            case "<":
+                return comparison < 0;
+            default:
+                return comparison <= 0;
+        }
+    }
+
+    private static boolean isBoolean(String value) {
+        return value.equalsIgnoreCase("TRUE") || value.equalsIgnoreCase("FALSE");
+    }
+}
@@ -0,0 +1,68 @@
+package edu.uob.DataStructure;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A scratch file divided into fixed-size pages, read and written only through the {@link BufferPool}
+ */
+public class PageFile {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final int id;
+    private final File file;
+    private final FileChannel channel;
+
+    private PageFile(File file) throws IOException {
+        this.id = NEXT_ID.incrementAndGet();
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Create an empty page file in the temp directory, removed again by {@link #close()}
+     */
+    public static PageFile createTemp(String prefix) throws IOException {
+        File file = File.createTempFile(prefix + "-", ".pages");
+        file.deleteOnExit();
+        return new PageFile(file);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Read a page, pages that were never written read as zeros
+     */
+    void readPage(int pageNumber, byte[] page) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(page);
+        long position = (long) pageNumber * page.length;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                while (buffer.hasRemaining()) {
+                    buffer.put((byte) 0);
+                }
+            }
+        }
+    }
+
+    void writePage(int pageNumber, byte[] page) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(page);
+        long position = (long) pageNumber * page.length;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file.toPath());
+    }
+}
@@ -0,0 +1,93 @@
+package edu.uob.DataStructure;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Keeps rows in fixed-size pages of a scratch file and reads them through a {@link BufferPool},
+ * so a table can be larger than the heap while memory use stays at the pool size.
+ * Records may cross page boundaries.
+ */
+public class PagedRowStore extends EncodedRowStore {
+    private final BufferPool pool;
+    private final String name;
+
+    public PagedRowStore(String name, BufferPool pool) {
+        this.name = name;
+        this.pool = pool;
+    }
+
+    @Override
+    protected Space newSpace() {
+        try {
+            return new PagedSpace(PageFile.createTemp("table-" + name));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create page file for " + name, e);
+        }
+    }
+
+    private final class PagedSpace implements Space {
+        private final PageFile file;
+        private long endOffset;
+
+        private PagedSpace(PageFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public long append(byte[] record) {
+            long address = endOffset;
+            copy(address, record, true);
+            endOffset += record.length;
+            return address;
+        }
+
+        @Override
+        public byte[] read(long address, int length) {
+            byte[] record = new byte[length];
+            copy(address, record, false);
+            return record;
+        }
+
+        @Override
+        public long size() {
+            return endOffset;
+        }
+
+        @Override
+        public void release() {
+            pool.discard(file);
+            try {
+                file.close();
+            } catch (IOException e) {
+                System.err.println("Error removing page file of " + name + ": " + e.getMessage());
+            }
+        }
+
+        // Copy between a byte array and the pages it spans, pinning one page at a time
+        private void copy(long address, byte[] bytes, boolean write) {
+            int done = 0;
+            try {
+                while (done < bytes.length) {
+                    long position = address + done;
+                    int pageNumber = (int) (position / BufferPool.PAGE_SIZE);
+                    int offset = (int) (position % BufferPool.PAGE_SIZE);
+                    int chunk = Math.min(bytes.length - done, BufferPool.PAGE_SIZE - offset);
+                    BufferPool.Page page = pool.pin(file, pageNumber);
+                    try {
+                        if (write) {
+                            System.arraycopy(bytes, done, page.getData(), offset, chunk);
+                        } else {
+                            System.arraycopy(page.getData(), offset, bytes, done, chunk);
+                        }
+                    } finally {
+                        pool.unpin(page, write);
+                    }
+                    done += chunk;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Page I/O failed for " + name, e);
+            }
+        }
+    }
+}
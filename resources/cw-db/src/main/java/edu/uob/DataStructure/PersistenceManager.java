@@ -0,0 +1,204 @@
+package edu.uob.DataStructure;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Decides when appended table log records reach the disk.
+ *
+ * <p>Depending on the {@link DurabilityPolicy} a statement is forced to disk before
+ * it returns, or its table is only marked dirty so that many statements share one
+ * write and one fsync. {@link #flushAll()} is the barrier that makes every
+ * acknowledged statement durable regardless of the policy. Records are always
+ * written by the {@link AsyncLogWriter} thread; only the wait for the fsync
+ * depends on the policy.
+ *
+ * <p>A checkpointer thread also folds the log of every changed table into a fresh
+ * snapshot at a fixed interval, so replay time and log size stay bounded even for
+ * tables that never grow past the fold threshold. It copies a table under the
+ * table's read lock, which only excludes statements that change that table. It
+ * never changes the rows itself, since SELECT reads them without a lock.
+ *
+ * <p>The flushes and checkpoints of every manager run on one shared pair of daemon
+ * threads, and one shutdown hook flushes every open manager, so servers that are
+ * created again and again do not pile up threads or hooks. {@link #close()} stops
+ * this manager's background work.
+ */
+public class PersistenceManager {
+    // Runs the flusher and checkpointer tasks of every manager
+    private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "table-log-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Managers that batch records, flushed by the shutdown hook
+    private static final Set<PersistenceManager> OPEN = ConcurrentHashMap.newKeySet();
+
+    static {
+        // Don't lose batched records on a normal JVM exit
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (PersistenceManager manager : OPEN) {
+                manager.flushQuietly();
+            }
+        }, "table-log-shutdown-flush"));
+    }
+
+    private final DurabilityPolicy policy;
+    private final Set<TableLog> dirtyLogs;
+    // Loaded tables by log, for the checkpointer
+    private final Map<TableLog, Table> trackedTables;
+    private ScheduledFuture<?> flusher;
+    private ScheduledFuture<?> checkpointer;
+
+    public PersistenceManager(DurabilityPolicy policy) {
+        this.policy = policy;
+        this.dirtyLogs = ConcurrentHashMap.newKeySet();
+        this.trackedTables = new ConcurrentHashMap<>();
+        if (policy == DurabilityPolicy.INTERVAL) {
+            startFlusher(StorageConfig.flushIntervalMillis());
+        }
+        if (StorageConfig.checkpointIntervalMillis() > 0) {
+            startCheckpointer(StorageConfig.checkpointIntervalMillis());
+        }
+        if (policy != DurabilityPolicy.EVERY_STATEMENT) {
+            OPEN.add(this);
+        }
+    }
+
+    private void startFlusher(long intervalMillis) {
+        flusher = SCHEDULER.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void startCheckpointer(long intervalMillis) {
+        checkpointer = SCHEDULER.scheduleWithFixedDelay(this::checkpointQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background flushes and checkpoints after flushing once more.
+     * The tables' logs are closed by their databases.
+     */
+    public void close() {
+        if (flusher != null) {
+            flusher.cancel(false);
+        }
+        if (checkpointer != null) {
+            checkpointer.cancel(false);
+        }
+        flushQuietly();
+        OPEN.remove(this);
+    }
+
+    public DurabilityPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Log records waiting for the log writer thread
+     */
+    public int getFlushQueueDepth() {
+        return AsyncLogWriter.shared().getQueueDepth();
+    }
+
+    /**
+     * Age of the oldest log record that has not been written yet, in milliseconds
+     */
+    public long getFlushLagMillis() {
+        return AsyncLogWriter.shared().getLagMillis();
+    }
+
+    /**
+     * Called once at the end of every mutating statement
+     */
+    public void commit(TableLog log) throws IOException {
+        if (policy == DurabilityPolicy.EVERY_STATEMENT) {
+            log.sync();
+        } else {
+            dirtyLogs.add(log);
+        }
+    }
+
+    /**
+     * Flush barrier: force every pending record of every table to disk
+     */
+    public synchronized void flushAll() throws IOException {
+        IOException failure = null;
+        for (TableLog log : dirtyLogs) {
+            dirtyLogs.remove(log);
+            try {
+                log.sync();
+            } catch (IOException e) {
+                // Keep it dirty so the next flush retries
+                dirtyLogs.add(log);
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flushAll();
+        } catch (IOException e) {
+            System.err.println("Error flushing table logs: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Let the checkpointer fold this table's log from now on
+     */
+    public void track(Table table, TableLog log) {
+        trackedTables.put(log, table);
+    }
+
+    /**
+     * Fold the log of every changed table into a new snapshot
+     */
+    public void checkpointAll() throws IOException {
+        IOException failure = null;
+        for (Map.Entry<TableLog, Table> entry : new ArrayList<>(trackedTables.entrySet())) {
+            TableLog log = entry.getKey();
+            Table table = entry.getValue();
+            Lock lock = table.getLock().readLock();
+            lock.lock();
+            try {
+                // The table may have been dropped while we waited for the lock
+                if (trackedTables.containsKey(log) && log.hasRecords()) {
+                    log.fold(new ArrayList<>(table.getColumnNames()), table.getRows());
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpointAll();
+        } catch (IOException e) {
+            System.err.println("Error checkpointing tables: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stop tracking a log whose table is being dropped or closed
+     */
+    public void forget(TableLog log) {
+        dirtyLogs.remove(log);
+        trackedTables.remove(log);
+    }
+}
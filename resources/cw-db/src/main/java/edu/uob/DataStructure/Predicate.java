@@ -0,0 +1,244 @@
+package edu.uob.DataStructure;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A WHERE clause compiled for one table. Column names are already resolved to
+ * column indexes and the compared values are classified once, so testing a row
+ * only reads the cells it needs. AND and OR stop at the first side that decides
+ * the row, which lets a whole clause be answered in a single pass over the rows.
+ */
+abstract class Predicate {
+    static final Predicate ALL = new Constant(true);
+    static final Predicate NONE = new Constant(false);
+
+    abstract boolean test(RowStore rows, int slot);
+
+    // False only if no row of the block can match
+    abstract boolean mayMatch(ZoneMap zoneMap, int block);
+
+    boolean hasOr() {
+        return false;
+    }
+
+    static final class Constant extends Predicate {
+        private final boolean result;
+
+        private Constant(boolean result) {
+            this.result = result;
+        }
+
+        @Override
+        boolean test(RowStore rows, int slot) {
+            return result;
+        }
+
+        @Override
+        boolean mayMatch(ZoneMap zoneMap, int block) {
+            return result;
+        }
+    }
+
+    static final class And extends Predicate {
+        final Predicate left;
+        final Predicate right;
+
+        And(Predicate left, Predicate right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(RowStore rows, int slot) {
+            return left.test(rows, slot) && right.test(rows, slot);
+        }
+
+        @Override
+        boolean mayMatch(ZoneMap zoneMap, int block) {
+            return left.mayMatch(zoneMap, block) && right.mayMatch(zoneMap, block);
+        }
+
+        @Override
+        boolean hasOr() {
+            return left.hasOr() || right.hasOr();
+        }
+    }
+
+    static final class Or extends Predicate {
+        final Predicate left;
+        final Predicate right;
+
+        Or(Predicate left, Predicate right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(RowStore rows, int slot) {
+            return left.test(rows, slot) || right.test(rows, slot);
+        }
+
+        @Override
+        boolean mayMatch(ZoneMap zoneMap, int block) {
+            return left.mayMatch(zoneMap, block) || right.mayMatch(zoneMap, block);
+        }
+
+        @Override
+        boolean hasOr() {
+            return true;
+        }
+    }
+
+    /**
+     * One column compared with one value
+     */
+    static final class Comparison extends Predicate {
+        final int column;
+        final String operator;
+        final String value;
+        private final boolean valueIsNull;
+        private final boolean valueIsNumber;
+        private final boolean valueIsBoolean;
+        private final double number;
+        // Compiled on first use, so a bad pattern only fails when a row is compared
+        private Pattern likePattern;
+        // Codes of the matching values of an encoded column. A predicate only lives for
+        // one statement, so the dictionary cannot change while it is in use.
+        private BitSet matchingCodes;
+        private boolean codesChecked;
+
+        Comparison(int column, String operator, String value) {
+            this.column = column;
+            this.operator = operator;
+            this.value = value;
+            this.valueIsNull = value.equals("NULL");
+            this.valueIsNumber = ColumnType.isNumeric(value);
+            this.valueIsBoolean = isBoolean(value);
+            this.number = valueIsNumber ? Double.parseDouble(value) : 0;
+        }
+
+        boolean isRange() {
+            return operator.equals(">") || operator.equals("<") || operator.equals(">=") || operator.equals("<=");
+        }
+
+        // Numeric columns answer range filters straight from their values
+        boolean comparesNumbers(RowStore rows) {
+            ColumnType type = rows.columnType(column);
+            return (type == ColumnType.INTEGER || type == ColumnType.FLOAT) && isRange() && valueIsNumber;
+        }
+
+        @Override
+        boolean test(RowStore rows, int slot) {
+            if (comparesNumbers(rows)) {
+                return !rows.isNull(slot, column) && compareNumbers(rows.getNumber(slot, column));
+            }
+            BitSet codes = matchingCodes(rows);
+            if (codes != null) {
+                return !rows.isNull(slot, column) && codes.get(rows.getCode(slot, column));
+            }
+            return matches(rows.getCell(slot, column));
+        }
+
+        // Encoded columns compare each distinct value once, then rows by code
+        private BitSet matchingCodes(RowStore rows) {
+            if (!codesChecked) {
+                List<String> dictionary = rows.dictionary(column);
+                if (dictionary != null) {
+                    matchingCodes = new BitSet(dictionary.size());
+                    for (int code = 0; code < dictionary.size(); code++) {
+                        if (matches(dictionary.get(code))) {
+                            matchingCodes.set(code);
+                        }
+                    }
+                }
+                codesChecked = true;
+            }
+            return matchingCodes;
+        }
+
+        @Override
+        boolean mayMatch(ZoneMap zoneMap, int block) {
+            return zoneMap.mayMatch(block, column, operator, value);
+        }
+
+        boolean compareNumbers(double cellValue) {
+            switch (operator) {
+                case ">":
+                    return cellValue > number;
+                case "<":
+                    return cellValue < number;
+                case ">=":
+                    return cellValue >= number;
+                default:
+                    return cellValue <= number;
+            }
+        }
+
+        // Calculate comparison result between a cell and the value
+        boolean matches(String cellValue) {
+            // Comparisons with NULL always return false
+            if (valueIsNull || cellValue.equals("NULL")) {
+                return false;
+            }
+
+            // If one is a number and the other is a string (and not a boolean), the types are incompatible
+            boolean cellIsNumber = ColumnType.isNumeric(cellValue);
+            if ((cellIsNumber && !valueIsNumber && !valueIsBoolean)
+                    || (valueIsNumber && !cellIsNumber && !isBoolean(cellValue))) {
+                return false;
+            }
+
+            switch (operator) {
+                case "==":
+                    return cellValue.equalsIgnoreCase(value);
+                case "!=":
+                    return !cellValue.equalsIgnoreCase(value);
+                case "LIKE":
+                    if (likePattern == null) {
+                        likePattern = Pattern.compile(value.replace("%", ".*"));
+                    }
+                    return likePattern.matcher(cellValue).matches();
+                case ">":
+                case "<":
+                case ">=":
+                case "<=":
+                    return compareRange(cellValue, cellIsNumber);
+                default:
+                    return false;
+            }
+        }
+
+        private boolean compareRange(String cellValue, boolean cellIsNumber) {
+            // Both numeric - do numeric comparison
+            if (cellIsNumber && valueIsNumber) {
+                return compareNumbers(Double.parseDouble(cellValue));
+            }
+            // Both boolean values, FALSE sorts before TRUE
+            if (valueIsBoolean && isBoolean(cellValue)) {
+                int order = Boolean.compare(Boolean.parseBoolean(cellValue), Boolean.parseBoolean(value));
+                return compareOrder(order);
+            }
+            // String comparison
+            return compareOrder(cellValue.compareTo(value));
+        }
+
+        private boolean compareOrder(int order) {
+            switch (operator) {
+                case ">":
+                    return order > 0;
+                case "<":
+                    return order < 0;
+                case ">=":
+                    return order >= 0;
+                default:
+                    return order <= 0;
+            }
+        }
+
+        private static boolean isBoolean(String str) {
+            return str.equalsIgnoreCase("TRUE") || str.equalsIgnoreCase("FALSE");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package edu.uob.DataStructure;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of one row for stores that keep rows outside the Java heap:
+ * the cell count followed by each cell as an int byte length and its UTF-8 bytes.
+ */
+public final class RowCodec {
+
+    private RowCodec() {
+    }
+
+    public static byte[] encode(List<String> row) {
+        byte[][] cells = new byte[row.size()][];
+        int length = Integer.BYTES;
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = row.get(i).getBytes(StandardCharsets.UTF_8);
+            length += Integer.BYTES + cells[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(cells.length);
+        for (byte[] cell : cells) {
+            buffer.putInt(cell.length);
+            buffer.put(cell);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decode a row, padding it with NULL up to the given number of columns
+     */
+    public static List<String> decode(byte[] record, int columnCount) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int cellCount = buffer.getInt();
+        List<String> row = new ArrayList<>(Math.max(cellCount, columnCount));
+        for (int i = 0; i < cellCount; i++) {
+            int length = buffer.getInt();
+            row.add(new String(record, buffer.position(), length, StandardCharsets.UTF_8));
+            buffer.position(buffer.position() + length);
+        }
+        while (row.size() < columnCount) {
+            row.add("NULL");
+        }
+        return row;
+    }
+
+    /**
+     * Decode a single cell without building the whole row
+     */
+    public static String decodeCell(byte[] record, int column) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        if (column >= buffer.getInt()) {
+            // Columns added after the row was written
+            return "NULL";
+        }
+        for (int i = 0; i < column; i++) {
+            buffer.position(buffer.position() + Integer.BYTES + buffer.getInt(buffer.position()));
+        }
+        int length = buffer.getInt();
+        return new String(record, buffer.position(), length, StandardCharsets.UTF_8);
+    }
+}
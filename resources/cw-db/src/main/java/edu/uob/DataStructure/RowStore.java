@@ -0,0 +1,84 @@
+package edu.uob.DataStructure;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Physical storage behind a {@link Table}. Rows are addressed by slot, their
+ * position in insertion order; removing rows renumbers the slots after them.
+ */
+public interface RowStore {
+
+    int size();
+
+    String getCell(int slot, int column);
+
+    /**
+     * A copy of the row, one value per column
+     */
+    List<String> getRow(int slot);
+
+    void setCell(int slot, int column, String value);
+
+    /**
+     * Replace every value of a row
+     */
+    default void setRow(int slot, List<String> row) {
+        for (int column = 0; column < row.size(); column++) {
+            setCell(slot, column, row.get(column));
+        }
+    }
+
+    /**
+     * Append a row that already has one value per column
+     */
+    void appendRow(List<String> row);
+
+    void removeRows(BitSet slots);
+
+    /**
+     * Append a column that is NULL in every existing row
+     */
+    void addColumn();
+
+    void dropColumn(int column);
+
+    /**
+     * Type shared by every non-NULL value of a column, STRING when the store does not track types
+     */
+    default ColumnType columnType(int column) {
+        return ColumnType.STRING;
+    }
+
+    default boolean isNull(int slot, int column) {
+        return getCell(slot, column).equals("NULL");
+    }
+
+    /**
+     * Value of a non-NULL cell in an INTEGER or FLOAT column
+     */
+    default double getNumber(int slot, int column) {
+        return Double.parseDouble(getCell(slot, column));
+    }
+
+    /**
+     * Distinct values of a dictionary-encoded column, indexed by code, or null if
+     * the column is not encoded
+     */
+    default List<String> dictionary(int column) {
+        return null;
+    }
+
+    /**
+     * Dictionary code of a non-NULL cell in an encoded column
+     */
+    default int getCode(int slot, int column) {
+        throw new UnsupportedOperationException("Column " + column + " is not dictionary encoded");
+    }
+
+    /**
+     * Release any resources held outside the Java heap
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,52 @@
+package edu.uob.DataStructure;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sorted slots of the rows under one index key. New rows always take the
+ * highest slot, so adding is usually an append.
+ */
+final class SlotList {
+    private int[] slots = new int[2];
+    private int size;
+
+    void add(int slot) {
+        if (size > 0 && slots[size - 1] >= slot) {
+            int position = Arrays.binarySearch(slots, 0, size, slot);
+            if (position >= 0) {
+                return;
+            }
+            insertAt(-position - 1, slot);
+            return;
+        }
+        insertAt(size, slot);
+    }
+
+    private void insertAt(int position, int slot) {
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        System.arraycopy(slots, position, slots, position + 1, size - position);
+        slots[position] = slot;
+        size++;
+    }
+
+    void remove(int slot) {
+        int position = Arrays.binarySearch(slots, 0, size, slot);
+        if (position >= 0) {
+            System.arraycopy(slots, position + 1, slots, position, size - position - 1);
+            size--;
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void addTo(BitSet result) {
+        for (int i = 0; i < size; i++) {
+            result.set(slots[i]);
+        }
+    }
+}
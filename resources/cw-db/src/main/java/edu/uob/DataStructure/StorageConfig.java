@@ -0,0 +1,122 @@
+package edu.uob.DataStructure;
+
+/**
+ * Storage settings, read from system properties so they can be changed
+ * without touching the DBServer constructor (e.g. -Ddb.durability=interval)
+ */
+public final class StorageConfig {
+
+    private StorageConfig() {
+    }
+
+    /**
+     * db.durability = statement | interval | checkpoint (default statement)
+     */
+    public static DurabilityPolicy durabilityPolicy() {
+        return DurabilityPolicy.fromName(System.getProperty("db.durability", "statement"));
+    }
+
+    /**
+     * db.flushIntervalMs = delay between group commits for the interval policy
+     */
+    public static long flushIntervalMillis() {
+        return Math.max(1L, Long.getLong("db.flushIntervalMs", 50L));
+    }
+
+    /**
+     * db.flushQueueCapacity = log records that may wait for the log writer thread before
+     * statements start waiting for it (default 8192)
+     */
+    public static int flushQueueCapacity() {
+        return Math.max(1, Integer.getInteger("db.flushQueueCapacity", 8192));
+    }
+
+    /**
+     * db.checkpointIntervalMs = how often every changed table is folded into a fresh
+     * snapshot in the background (default one minute, 0 turns it off)
+     */
+    public static long checkpointIntervalMillis() {
+        return Math.max(0L, Long.getLong("db.checkpointIntervalMs", 60_000L));
+    }
+
+    /**
+     * db.compactDeadRatio = share of deleted rows a table may hold before they are
+     * removed from its storage (default 0.25)
+     */
+    public static double compactDeadRatio() {
+        try {
+            return Double.parseDouble(System.getProperty("db.compactDeadRatio", "0.25"));
+        } catch (NumberFormatException e) {
+            return 0.25;
+        }
+    }
+
+    /**
+     * db.format = tab | columnar, the format new snapshots are written in (default tab).
+     * Tables in the other format are still read and migrated on their next snapshot.
+     */
+    public static TableFormat tableFormat() {
+        return TableFormat.fromName(System.getProperty("db.format", "tab"));
+    }
+
+    /**
+     * The snapshot format of one table: compressed tables are always written as
+     * block-compressed columnar snapshots, the others in the db.format format
+     */
+    public static TableFormat tableFormat(String tableName) {
+        return compressed(tableName) ? new ColumnarTableFormat(true) : tableFormat();
+    }
+
+    /**
+     * db.compress = true | false (default false), overridable per table with db.compress.&lt;table&gt;.
+     * Compresses the table's snapshot on disk, which is inflated when the table is loaded,
+     * and, for LSM tables, its merged segments, whose blocks are inflated as rows are read.
+     */
+    public static boolean compressed(String tableName) {
+        return Boolean.parseBoolean(System.getProperty("db.compress." + tableName, System.getProperty("db.compress", "false")));
+    }
+
+    /**
+     * db.storage = heap | mapped | paged | lsm | offheap | columnar (default heap), overridable per table with db.storage.&lt;table&gt;
+     */
+    public static StorageMode storageMode(String tableName) {
+        String mode = System.getProperty("db.storage." + tableName, System.getProperty("db.storage", "heap"));
+        return StorageMode.fromName(mode);
+    }
+
+    /**
+     * db.loaderThreads = size of the pool that parses tables in parallel (default one per core)
+     */
+    public static int loaderThreads() {
+        return Math.max(1, Integer.getInteger("db.loaderThreads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * db.preload = use | all | none (default use). With use, selecting a database starts
+     * loading all of its tables in parallel; with all, every database is loaded at startup.
+     */
+    public static String preload() {
+        return System.getProperty("db.preload", "use").toLowerCase();
+    }
+
+    /**
+     * db.reportLoadTimes = true prints how long each table took to load
+     */
+    public static boolean reportLoadTimes() {
+        return Boolean.getBoolean("db.reportLoadTimes");
+    }
+
+    /**
+     * db.bufferPoolPages = number of 8KB pages the buffer pool of paged tables may hold (default 32MB)
+     */
+    public static int bufferPoolPages() {
+        return Math.max(1, Integer.getInteger("db.bufferPoolPages", 4096));
+    }
+
+    /**
+     * db.lsmMemtableRows = rows an LSM table buffers in memory before writing a segment
+     */
+    public static int lsmMemtableRows() {
+        return Math.max(1, Integer.getInteger("db.lsmMemtableRows", 4096));
+    }
+}
@@ -0,0 +1,38 @@
+package edu.uob.DataStructure;
+
+/**
+ * Where the rows of a table live while the database is open
+ */
+public enum StorageMode {
+    // Lists of strings on the Java heap
+    HEAP,
+    // Read from the memory-mapped .tab file, only changed rows are kept on the heap
+    MAPPED,
+    // Fixed-size pages in a scratch file, cached by the shared buffer pool
+    PAGED,
+    // Sorted memtable plus immutable segment files, for append-heavy tables
+    LSM,
+    // Encoded rows in direct byte buffers outside the Java heap
+    OFF_HEAP,
+    // One contiguous array per column, for scans over a few attributes
+    COLUMNAR;
+
+    public static StorageMode fromName(String name) {
+        if (name.trim().equalsIgnoreCase("mapped")) {
+            return MAPPED;
+        }
+        if (name.trim().equalsIgnoreCase("paged")) {
+            return PAGED;
+        }
+        if (name.trim().equalsIgnoreCase("lsm")) {
+            return LSM;
+        }
+        if (name.trim().equalsIgnoreCase("offheap")) {
+            return OFF_HEAP;
+        }
+        if (name.trim().equalsIgnoreCase("columnar")) {
+            return COLUMNAR;
+        }
+        return HEAP;
+    }
+}
@@ -0,0 +1,173 @@
+package edu.uob.DataStructure;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The original tab-separated text format: a header line of column names
+ * followed by one line per row
+ */
+public class TabTableFormat implements TableFormat {
+
+    @Override
+    public String getExtension() {
+        return ".tab";
+    }
+
+    /**
+     * Stream the file through one reusable buffer and hand each row straight to the
+     * table, so only the stored rows stay on the heap. Rows are split exactly like
+     * {@code readAllLines} followed by {@code split("\t")}.
+     */
+    @Override
+    public Table read(String tableName, File file, RowStore store) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            RowTokenizer tokenizer = new RowTokenizer(reader);
+            // Reused for every row, addRowDirect copies the values it keeps
+            List<String> values = new ArrayList<>();
+            if (!tokenizer.readRow(values)) {
+                return null;
+            }
+            Table table = TableFormat.newTable(tableName, values, store);
+            int line = 1;
+            while (tokenizer.readRow(values)) {
+                try {
+                    table.addRowDirect(values);
+                } catch (Exception e) {
+                    System.err.println("Warning: Error loading row " + line + " from table " + tableName + ": " + e.getMessage());
+                    // Continue processing the next row, don't interrupt
+                }
+                line++;
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Splits a stream of characters into lines and tab-separated values by hand
+     */
+    private static final class RowTokenizer {
+        private final Reader reader;
+        private final char[] buffer = new char[64 * 1024];
+        // Part of a value that started before the buffer was refilled
+        private final StringBuilder partial = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean skipLineFeed;
+
+        private RowTokenizer(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Read the next line into values, returns false at the end of the stream
+         */
+        private boolean readRow(List<String> values) throws IOException {
+            values.clear();
+            if (skipLineFeed) {
+                // The second half of a \r\n line break
+                skipLineFeed = false;
+                if ((position < limit || fill()) && buffer[position] == '\n') {
+                    position++;
+                }
+            }
+            boolean started = false;
+            boolean sawTab = false;
+            while (true) {
+                if (position == limit && !fill()) {
+                    if (!started) {
+                        return false;
+                    }
+                    values.add(takeValue(position, position));
+                    break;
+                }
+                started = true;
+                int start = position;
+                while (position < limit && !isSeparator(buffer[position])) {
+                    position++;
+                }
+                if (position == limit) {
+                    partial.append(buffer, start, position - start);
+                    continue;
+                }
+                char separator = buffer[position++];
+                values.add(takeValue(start, position - 1));
+                if (separator == '\t') {
+                    sawTab = true;
+                    continue;
+                }
+                skipLineFeed = separator == '\r';
+                break;
+            }
+            // split() drops trailing empty values, but only when the line had a tab
+            if (sawTab) {
+                while (!values.isEmpty() && values.get(values.size() - 1).isEmpty()) {
+                    values.remove(values.size() - 1);
+                }
+            }
+            return true;
+        }
+
+        private static boolean isSeparator(char c) {
+            return c == '\t' || c == '\n' || c == '\r';
+        }
+
+        private String takeValue(int start, int end) {
+            if (partial.length() == 0) {
+                return new String(buffer, start, end - start);
+            }
+            partial.append(buffer, start, end - start);
+            String value = partial.toString();
+            partial.setLength(0);
+            return value;
+        }
+
+        private boolean fill() throws IOException {
+            position = 0;
+            limit = Math.max(0, reader.read(buffer, 0, buffer.length));
+            return limit > 0;
+        }
+    }
+
+    /**
+     * Open the file as a memory-mapped table instead of reading it onto the heap.
+     * Returns null if the file cannot be mapped.
+     */
+    public Table map(String tableName, File file) throws IOException {
+        String headerLine;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
+            headerLine = reader.readLine();
+        }
+        if (headerLine == null) {
+            return null;
+        }
+        Table header = TableFormat.newTable(tableName, Arrays.asList(headerLine.split("\t")), new HeapRowStore());
+        List<String> columnNames = new ArrayList<>(header.getColumnNames());
+        MappedRowStore store = MappedRowStore.open(file, columnNames.size());
+        return store == null ? null : new Table(tableName, columnNames, store);
+    }
+
+    @Override
+    public void write(List<String> columnNames, List<List<String>> rows, OutputStream out) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join("\t", columnNames));
+        writer.newLine();
+        for (List<String> row : rows) {
+            writer.write(String.join("\t", row));
+            writer.newLine();
+        }
+        writer.flush();
+    }
+}
@@ -1,9 +1,17 @@
 package edu.uob.DataStructure;
 
+import edu.uob.CommandParser.ConditionParser;
+
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 
 /**
@@ -11,29 +19,71 @@ import java.util.HashMap;
  */
 
 public class Table {
+    // Dead rows stay in the store until there are at least this many and they pass db.compactDeadRatio
+    private static final int MIN_COMPACT_ROWS = 64;
+    // An automatically chosen index is a bitmap when at least this many rows share at most this many values
+    private static final int BITMAP_MIN_ROWS = 256;
+    private static final int BITMAP_MAX_VALUES = 16;
+    // Dropped columns are purged at the next log fold once they hold at least this many cells
+    private static final long MIN_PURGE_CELLS = 1 << 16;
+
     private String name;
-    private List<List<String>> rows;
+    private LogicalRowStore rows;
     private List<String> columnNames;
     private int nextId = 1;
     private int maxUsedId = 0;  // Track the highest ID ever used
+    // Held for writing by statements that change the table, for reading by checkpoints
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Rows changed by UPDATE or DELETE since the last takeDirtyRows(), by id; null marks a deleted row
+    private Map<String, List<String>> dirtyRows = new LinkedHashMap<>();
+    // Tombstones: slots of deleted rows that are still in the store
+    private final BitSet deadSlots = new BitSet();
+    private int deadCount;
+    // Slot of every live row by id, for point lookups and row identity
+    private final Map<String, Integer> slotById = new HashMap<>();
+    // False once two live rows share an id, which only a hand-edited file can cause
+    private boolean idsUnique = true;
+    // Secondary indexes by column name
+    private final Map<String, ColumnIndex> indexes = new LinkedHashMap<>();
+    // Built by the first scan of a table with more than one block; dropped when slots or columns change
+    private ZoneMap zoneMap;
 
     public Table(String name) {
+        this(name, new HeapRowStore());
+    }
+
+    // An empty table whose rows go to the given store
+    public Table(String name, RowStore rows) {
         this.name = name;
-        this.rows = new ArrayList<>();
+        this.rows = new LogicalRowStore(rows, 1);
         this.columnNames = new ArrayList<>();
         // Only one id
         columnNames.add("id");
     }
 
+    // Wrap rows that are already stored, e.g. a memory-mapped file
+    public Table(String name, List<String> columnNames, RowStore rows) {
+        this.name = name;
+        this.rows = new LogicalRowStore(rows, columnNames.size());
+        this.columnNames = columnNames;
+        for (int slot = 0; slot < rows.size(); slot++) {
+            trackId(rows.getCell(slot, 0));
+            indexId(slot);
+        }
+    }
+
+    public ReadWriteLock getLock() {
+        return lock;
+    }
+
     // Add a column
     public boolean addColumn(String columnName) {
         if (columnNameExists(columnName)) {
             return false;
         }
         columnNames.add(columnName);
-        for (List<String> row : rows) {
-            row.add("NULL");
-        }
+        rows.addColumn();
+        zoneMap = null;
         return true;
     }
 
@@ -69,9 +119,10 @@ public class Table {
             return false;
         }
         columnNames.remove(colIndex);
-        for (List<String> row : rows) {
-            row.remove(colIndex);
-        }
+        rows.dropColumn(colIndex);
+        indexes.remove(columnName);
+        zoneMap = null;
+        // The data stays until the next compaction or log fold
         return true;
     }
 
@@ -84,14 +135,7 @@ public class Table {
             maxUsedId = Math.max(maxUsedId, nextId - 1);
         } else {
             adjustedRow.add(rowData.get(0));
-            try {
-                int id = Integer.parseInt(rowData.get(0));
-                if (id >= nextId) {
-                    nextId = id + 1;
-                }
-                maxUsedId = Math.max(maxUsedId, id);
-            } catch (NumberFormatException ignored) {
-            }
+            trackId(rowData.get(0));
         }
         for (int i = 1; i < Math.min(rowData.size(), columnNames.size()); i++) {
             adjustedRow.add(rowData.get(i));
@@ -100,11 +144,125 @@ public class Table {
             adjustedRow.add("NULL");
         }
 
-        rows.add(adjustedRow);
+        rows.appendRow(adjustedRow);
+        appended(adjustedRow);
+    }
+
+    private void indexId(int slot) {
+        Integer previous = slotById.put(rows.getCell(slot, 0), slot);
+        if (previous != null) {
+            idsUnique = false;
+        }
+    }
+
+    /**
+     * Slot of the live row with this id, or null
+     */
+    Integer slotOf(String id) {
+        return slotById.get(id);
+    }
+
+    /**
+     * Build an index of the given kind (HASH, ORDERED, BITMAP or AUTO) on a column. Fails
+     * for unknown columns or kinds, the id column, which is always indexed, and columns
+     * that already have an index.
+     */
+    public boolean createIndex(String columnName, String type) {
+        int column = getColumnIndex(columnName);
+        if (column > 0 && type.equalsIgnoreCase(ColumnIndex.AUTO)) {
+            type = chooseIndexType(column);
+        }
+        ColumnIndex index = ColumnIndex.create(type);
+        if (column <= 0 || index == null || indexes.containsKey(columnName)) {
+            return false;
+        }
+        fillIndex(index, column);
+        indexes.put(columnName, index);
+        return true;
+    }
+
+    public boolean dropIndex(String columnName) {
+        return indexes.remove(columnName) != null;
+    }
+
+    /**
+     * Kind of index on each indexed column, in the order they were created
+     */
+    public Map<String, String> getIndexTypes() {
+        Map<String, String> types = new LinkedHashMap<>();
+        for (Map.Entry<String, ColumnIndex> entry : indexes.entrySet()) {
+            types.put(entry.getKey(), entry.getValue().getType());
+        }
+        return types;
+    }
+
+    /**
+     * Slots matching "column operator value" according to an index on the column,
+     * or null if no index can answer it
+     */
+    BitSet findIndexed(int column, String operator, String value) {
+        ColumnIndex index = indexes.get(columnNames.get(column));
+        if (index == null) {
+            return null;
+        }
+        return index.find(operator, value);
+    }
+
+    private String chooseIndexType(int column) {
+        if (getRowCount() < BITMAP_MIN_ROWS) {
+            return HashIndex.TYPE;
+        }
+        Set<String> values = new HashSet<>();
+        for (int slot : allSlots()) {
+            String value = rows.getCell(slot, column);
+            if (!value.equals("NULL") && values.add(HashIndex.fold(value)) && values.size() > BITMAP_MAX_VALUES) {
+                return HashIndex.TYPE;
+            }
+        }
+        return BitmapIndex.TYPE;
+    }
+
+    private void fillIndex(ColumnIndex index, int column) {
+        for (int slot : allSlots()) {
+            index.add(slot, rows.getCell(slot, column));
+        }
+    }
+
+    // Bring the indexes and zone map up to date with the row just appended
+    private void appended(List<String> row) {
+        int slot = rows.size() - 1;
+        indexId(slot);
+        indexRow(slot);
+        if (zoneMap != null) {
+            zoneMap.addRow(slot, row);
+        }
+    }
+
+    private void indexRow(int slot) {
+        for (Map.Entry<String, ColumnIndex> entry : indexes.entrySet()) {
+            entry.getValue().add(slot, rows.getCell(slot, getColumnIndex(entry.getKey())));
+        }
     }
 
-    // Add a row of data
-    public void addRow(String[] values) {
+    private void unindexRow(int slot) {
+        for (Map.Entry<String, ColumnIndex> entry : indexes.entrySet()) {
+            entry.getValue().remove(slot, rows.getCell(slot, getColumnIndex(entry.getKey())));
+        }
+    }
+
+    private void trackId(String idValue) {
+        try {
+            int id = Integer.parseInt(idValue);
+            if (id >= nextId) {
+                nextId = id + 1;
+            }
+            maxUsedId = Math.max(maxUsedId, id);
+        } catch (NumberFormatException ignored) {
+        }
+    }
+
+    // Add a row of data, returns the stored row including its new id
+    public List<String> addRow(String[] values) {
         // Check for too few values - need at least one value for non-ID columns
         if (values.length < 1 && columnNames.size() > 1) {
             throw new IllegalArgumentException("Too few values provided for insertion");
@@ -139,7 +297,9 @@ public class Table {
         while (newRow.size() < columnNames.size()) {
             newRow.add("NULL");
         }
-        rows.add(newRow);
+        rows.appendRow(newRow);
+        appended(newRow);
+        return newRow;
     }
 
 
@@ -164,11 +324,21 @@ public class Table {
         } else if (newValue.equalsIgnoreCase("FALSE")) {
             newValue = "FALSE";
         }
-        List<List<String>> matchingRows = evaluateCondition(condition);
-        for (List<String> row : matchingRows) {
-            row.set(colIndex, newValue);
+        List<Integer> matchingSlots = matchingRowIndexes(condition);
+        ColumnIndex index = indexes.get(columnName);
+        for (int slot : matchingSlots) {
+            String oldValue = rows.getCell(slot, colIndex);
+            if (index != null) {
+                index.remove(slot, oldValue);
+                index.add(slot, newValue);
+            }
+            if (zoneMap != null) {
+                zoneMap.update(slot, colIndex, oldValue, newValue);
+            }
+            rows.setCell(slot, colIndex, newValue);
+            dirtyRows.put(rows.getCell(slot, 0), rows.getRow(slot));
         }
-        return matchingRows.size();
+        return matchingSlots.size();
     }
 
     // Delete rows
@@ -176,36 +346,178 @@ public class Table {
         if (condition == null || condition.trim().isEmpty()) {
             return false; // No unconditional deletion allowed
         }
-        List<List<String>> rowsToDelete = evaluateCondition(condition);
-        if (rowsToDelete.isEmpty()) {
+        List<Integer> slotsToDelete = matchingRowIndexes(condition);
+        if (slotsToDelete.isEmpty()) {
             return true; // No matching rows is still considered success
         }
-        rows.removeAll(rowsToDelete);
+        BitSet deleted = new BitSet(rows.size());
+        for (int slot : slotsToDelete) {
+            deleted.set(slot);
+            dirtyRows.put(rows.getCell(slot, 0), null);
+        }
+        removeSlots(deleted);
         return true;
     }
 
+    /**
+     * The rows changed since the last call, keyed by id in the order they were first
+     * changed. Each value is the row as it is now, or null if the row was deleted.
+     */
+    public Map<String, List<String>> takeDirtyRows() {
+        Map<String, List<String>> changed = dirtyRows;
+        dirtyRows = new LinkedHashMap<>();
+        return changed;
+    }
+
+    // Used by log replay, which locates rows by id itself
+    void replaceRow(int slot, List<String> row) {
+        unindexRow(slot);
+        if (zoneMap != null) {
+            List<String> oldRow = rows.getRow(slot);
+            for (int column = 0; column < row.size(); column++) {
+                zoneMap.update(slot, column, oldRow.get(column), row.get(column));
+            }
+        }
+        rows.setRow(slot, row);
+        indexRow(slot);
+    }
+
+    // Mark rows dead instead of shifting every row after them; scans skip dead slots
+    void removeSlots(BitSet slots) {
+        slots.andNot(deadSlots);
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            slotById.remove(rows.getCell(slot, 0), slot);
+            unindexRow(slot);
+        }
+        deadSlots.or(slots);
+        deadCount += slots.cardinality();
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        if (deadCount >= MIN_COMPACT_ROWS && deadCount >= rows.size() * StorageConfig.compactDeadRatio()) {
+            compact();
+        }
+    }
+
+    /**
+     * True when the cells of dropped columns are worth a purge: many of them, or at
+     * least as many dropped columns as visible ones
+     */
+    public boolean needsColumnPurge() {
+        int dropped = rows.droppedColumnCount();
+        return dropped > 0 && (dropped >= columnNames.size() || (long) dropped * rows.size() >= MIN_PURGE_CELLS);
+    }
+
+    /**
+     * Remove the data of dropped columns from the store. Rewrites every row, so it
+     * runs when the log is folded or the table compacted, never as part of ALTER TABLE.
+     */
+    public void purgeDroppedColumns() {
+        if (rows.droppedColumnCount() > 0) {
+            rows.purgeDroppedColumns();
+        }
+    }
+
+    /**
+     * Drop dead rows from the store. Renumbers the slots of the rows after them.
+     */
+    public void compact() {
+        if (deadCount > 0) {
+            rows.removeRows(deadSlots);
+            deadSlots.clear();
+            deadCount = 0;
+            purgeDroppedColumns();
+            rebuildIndexes();
+            zoneMap = null;
+        }
+    }
+
+    // Compaction renumbers slots, so every index is rebuilt
+    private void rebuildIndexes() {
+        slotById.clear();
+        idsUnique = true;
+        for (int slot = 0; slot < rows.size(); slot++) {
+            indexId(slot);
+        }
+        for (Map.Entry<String, ColumnIndex> entry : indexes.entrySet()) {
+            entry.getValue().clear();
+            fillIndex(entry.getValue(), getColumnIndex(entry.getKey()));
+        }
+    }
+
+    // Physical slots including dead ones, for log replay
+    int slotCount() {
+        return rows.size();
+    }
+
+    boolean isLive(int slot) {
+        return !deadSlots.get(slot);
+    }
+
     // Calculate matching rows based on condition
     public List<List<String>> evaluateCondition(String condition) {
+        List<List<String>> matchingRows = new ArrayList<>();
+        for (int slot : matchingRowIndexes(condition)) {
+            matchingRows.add(rows.getRow(slot));
+        }
+        return matchingRows;
+    }
+
+    // Calculate the indexes of matching rows, so callers can read single cells
+    public List<Integer> matchingRowIndexes(String condition) {
+        return toSlots(matchingSlots(condition));
+    }
+
+    // Conditions are compiled once, then answered by an index or a single pass over the rows
+    private BitSet matchingSlots(String condition) {
         // If no condition, return all rows
         if (condition == null || condition.trim().isEmpty()) {
-            return new ArrayList<>(rows);
+            return liveBits();
         }
-        
-        // Normalize the condition
-        condition = normalizeCondition(condition);
-        
-        // Handle AND operator
-        if (containsLogicalOperator(condition, " AND ")) {
-            return evaluateAndCondition(condition);
+        Predicate predicate = compile(parseCondition(condition));
+        if (predicate instanceof Predicate.Comparison) {
+            return evaluateSimpleCondition((Predicate.Comparison) predicate);
         }
 
-        // Handle OR operator
-        if (containsLogicalOperator(condition, " OR ")) {
-            return evaluateOrCondition(condition);
+        // Indexed parts narrow the rows to test, then every row is tested against the whole tree
+        BitSet candidates = indexedSlots(predicate);
+        if (candidates == null) {
+            candidates = candidateSlots(predicate);
+        }
+        BitSet matchingRows = new BitSet(rows.size());
+        for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+            if (predicate.test(rows, slot)) {
+                matchingRows.set(slot);
+            }
+        }
+        if (!idsUnique && predicate.hasOr()) {
+            removeDuplicateIds(matchingRows);
         }
+        return matchingRows;
+    }
+
+    private BitSet liveBits() {
+        BitSet live = new BitSet(rows.size());
+        live.set(0, rows.size());
+        live.andNot(deadSlots);
+        return live;
+    }
 
-        // Simple condition - no AND/OR
-        return evaluateSimpleCondition(condition, rows);
+    private List<Integer> toSlots(BitSet bits) {
+        List<Integer> slots = new ArrayList<>(bits.cardinality());
+        for (int slot = bits.nextSetBit(0); slot >= 0; slot = bits.nextSetBit(slot + 1)) {
+            slots.add(slot);
+        }
+        return slots;
+    }
+
+    private List<Integer> allSlots() {
+        List<Integer> slots = new ArrayList<>(getRowCount());
+        for (int slot = deadSlots.nextClearBit(0); slot < rows.size(); slot = deadSlots.nextClearBit(slot + 1)) {
+            slots.add(slot);
+        }
+        return slots;
     }
     
     private String normalizeCondition(String condition) {
@@ -218,40 +530,35 @@ public class Table {
         return condition;
     }
     
-    private boolean containsLogicalOperator(String condition, String operator) {
-        String[] parts = splitOutsideBrackets(condition, operator);
-        return parts.length == 2;
-    }
-    
-    private List<List<String>> evaluateAndCondition(String condition) {
-        String[] parts = splitOutsideBrackets(condition, " AND ");
-        if (parts.length == 2) {
-            List<List<String>> leftResult = evaluateCondition(parts[0].trim());
-            List<List<String>> rightResult = evaluateCondition(parts[1].trim());
-            leftResult.retainAll(rightResult); // intersection
-            return leftResult;
+    // Split on AND first, then OR, outside brackets; anything else is a single comparison
+    private ConditionParser.ConditionNode parseCondition(String condition) {
+        condition = normalizeCondition(condition);
+        for (String operator : new String[]{"AND", "OR"}) {
+            String[] parts = splitOutsideBrackets(condition, " " + operator + " ");
+            if (parts.length == 2) {
+                return new ConditionParser.ConditionNode(operator,
+                        parseCondition(parts[0]), parseCondition(parts[1]));
+            }
         }
-        // Shouldn't happen if containsLogicalOperator was called first
-        return new ArrayList<>();
+        return parseComparison(condition);
     }
-    
-    private List<List<String>> evaluateOrCondition(String condition) {
-        String[] parts = splitOutsideBrackets(condition, " OR ");
-        if (parts.length == 2) {
-            List<List<String>> leftResult = evaluateCondition(parts[0].trim());
-            List<List<String>> rightResult = evaluateCondition(parts[1].trim());
-
-            // Create the union - keep all rows from left and add non-duplicate rows from right
-            List<List<String>> result = new ArrayList<>(leftResult);
-            for (List<String> row : rightResult) {
-                if (!containsRow(result, row)) {
-                    result.add(row);
-                }
-            }
-            return result;
+
+    // Resolve column names to indexes and build the predicate that tests rows
+    private Predicate compile(ConditionParser.ConditionNode node) {
+        if (node == null) {
+            return Predicate.ALL; // Invalid condition, every row matches
+        }
+        if (node.operator.equals("AND")) {
+            return new Predicate.And(compile(node.left), compile(node.right));
         }
-        // Shouldn't happen if containsLogicalOperator was called first
-        return new ArrayList<>();
+        if (node.operator.equals("OR")) {
+            return new Predicate.Or(compile(node.left), compile(node.right));
+        }
+        int columnIndex = getColumnIndex(node.attributeName);
+        if (columnIndex == -1) {
+            return Predicate.NONE; // Column not found, no row matches
+        }
+        return new Predicate.Comparison(columnIndex, node.operator, node.value);
     }
 
     // Helper method: Count matching bracket pairs in a condition string
@@ -299,173 +606,121 @@ public class Table {
         return result.toArray(new String[0]);
     }
 
-    // Helper method
-    private boolean containsRow(List<List<String>> rows, List<String> row) {
-        for (List<String> existingRow : rows) {
-            if (existingRow.get(0).equals(row.get(0))) { // Compare ID column
-                return true;
+    // Rows are the same when their ids are; only a hand-edited file has two live rows with one id
+    private void removeDuplicateIds(BitSet slots) {
+        Set<String> seenIds = new HashSet<>();
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            if (!seenIds.add(rows.getCell(slot, 0))) {
+                slots.clear(slot);
             }
         }
-        return false;
     }
 
     // Handle simple conditions
-    private List<List<String>> evaluateSimpleCondition(String condition, List<List<String>> rowsToFilter) {
-        List<List<String>> matchingRows = new ArrayList<>();
-        
-        // Extract column name and value from condition
-        Map<String, Object> extractedCondition = extractConditionParts(condition);
-        if (extractedCondition == null) {
-            return rowsToFilter; // Invalid condition, return original rows
+    private BitSet evaluateSimpleCondition(Predicate.Comparison comparison) {
+        BitSet indexed = indexedSlots(comparison);
+        if (indexed != null) {
+            return indexed;
         }
-        
-        String columnName = (String) extractedCondition.get("column");
-        String operator = (String) extractedCondition.get("operator");
-        String value = (String) extractedCondition.get("value");
-        
-        // Get column index
-        int columnIndex = getColumnIndex(columnName);
-        if (columnIndex == -1) {
-            return new ArrayList<>(); // Column not found, return empty result
+
+        BitSet matchingRows = new BitSet(rows.size());
+        BitSet candidates = candidateSlots(comparison);
+
+        // Check each row for a match, by code if the column is dictionary encoded
+        for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+            if (comparison.test(rows, slot)) {
+                matchingRows.set(slot);
+            }
         }
-        
-        // Check each row for a match
-        for (List<String> row : rowsToFilter) {
-            if (row.size() > columnIndex) {
-                String cellValue = row.get(columnIndex);
-                if (evaluateComparison(cellValue, operator, value)) {
-                    matchingRows.add(row);
+        return matchingRows;
+    }
+
+    /**
+     * Slots that indexes narrow a condition down to, or null if no index helps.
+     * A single comparison is answered exactly; under AND the result may hold extra rows.
+     */
+    private BitSet indexedSlots(Predicate predicate) {
+        if (predicate instanceof Predicate.Comparison) {
+            Predicate.Comparison comparison = (Predicate.Comparison) predicate;
+            // id equality is a point lookup; a numeric id has no case, so exact lookup matches equalsIgnoreCase
+            if (comparison.column == 0 && comparison.operator.equals("==") && idsUnique && isNumeric(comparison.value)) {
+                BitSet slots = new BitSet(rows.size());
+                Integer slot = slotById.get(comparison.value);
+                if (slot != null) {
+                    slots.set(slot);
                 }
+                return slots;
             }
+            return findIndexed(comparison.column, comparison.operator, comparison.value);
+        }
+        if (predicate instanceof Predicate.And) {
+            Predicate.And and = (Predicate.And) predicate;
+            BitSet left = indexedSlots(and.left);
+            BitSet right = indexedSlots(and.right);
+            if (left == null || right == null) {
+                return left == null ? right : left;
+            }
+            left.and(right);
+            return left;
+        }
+        if (predicate instanceof Predicate.Or) {
+            Predicate.Or or = (Predicate.Or) predicate;
+            BitSet left = indexedSlots(or.left);
+            BitSet right = left == null ? null : indexedSlots(or.right);
+            if (right == null) {
+                return null;
+            }
+            left.or(right);
+            return left;
         }
-        
-        return matchingRows;
+        return null;
     }
-    
-    private Map<String, Object> extractConditionParts(String condition) {
+
+    // Live slots outside the blocks the zone map rules out
+    private BitSet candidateSlots(Predicate predicate) {
+        BitSet candidates = liveBits();
+        if (rows.size() <= ZoneMap.BLOCK_ROWS) {
+            return candidates;
+        }
+        if (zoneMap == null) {
+            zoneMap = new ZoneMap();
+            for (int slot = 0; slot < rows.size(); slot++) {
+                zoneMap.addRow(slot, rows.getRow(slot));
+            }
+        }
+        for (int block = 0; block * ZoneMap.BLOCK_ROWS < rows.size(); block++) {
+            if (!predicate.mayMatch(zoneMap, block)) {
+                candidates.clear(block * ZoneMap.BLOCK_ROWS, Math.min((block + 1) * ZoneMap.BLOCK_ROWS, rows.size()));
+            }
+        }
+        return candidates;
+    }
+
+    private ConditionParser.ConditionNode parseComparison(String condition) {
         // Parse simple conditions like: columnName == value
         String[] operators = {"==", "!=", ">=", "<=", ">", "<", "LIKE"};
-        
+
         for (String operator : operators) {
             if (condition.contains(operator)) {
                 String[] parts = condition.split(operator, 2);
                 if (parts.length == 2) {
                     String columnName = parts[0].trim().toLowerCase();
                     String value = parts[1].trim();
-                    
+
                     // Remove surrounding quotes if present
                     if (value.startsWith("'") && value.endsWith("'")) {
                         value = value.substring(1, value.length() - 1);
                     }
-                    
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("column", columnName);
-                    result.put("operator", operator);
-                    result.put("value", value);
-                    
-                    return result;
+                    return new ConditionParser.ConditionNode(operator, columnName, value);
                 }
             }
         }
-        
+
         return null; // Invalid condition format
     }
 
-    // Calculate comparison result between two values
-    private boolean evaluateComparison(String cellValue, String operator, String value) {
-        // Handle NULL values
-        if (cellValue.equals("NULL") || value.equals("NULL")) {
-            return false; // Comparisons with NULL always return false
-        }
-
-        // Check if we're comparing a number with a string
-        boolean cellIsNumber = isNumeric(cellValue);
-        boolean valueIsNumber = isNumeric(value);
-        
-        // If one is a number and the other is a string (and not a boolean), return false for incompatible types
-        if ((cellIsNumber && !valueIsNumber && !isBoolean(value)) || 
-            (valueIsNumber && !cellIsNumber && !isBoolean(cellValue))) {
-            return false;  // Incompatible types comparison should return empty result
-        }
-
-        switch (operator) {
-            case "==":
-                return cellValue.equalsIgnoreCase(value);
-            case "!=":
-                return !cellValue.equalsIgnoreCase(value);
-            case ">":
-                // Both numeric - do numeric comparison
-                if (cellIsNumber && valueIsNumber) {
-                    try {
-                        return Double.parseDouble(cellValue) > Double.parseDouble(value);
-                    } catch (NumberFormatException e) {
-                        return false;
-                    }
-                }
-                // Both boolean values
-                if (isBoolean(cellValue) && isBoolean(value)) {
-                    return Boolean.parseBoolean(cellValue) && !Boolean.parseBoolean(value);
-                }
-                // String comparison
-                return cellValue.compareTo(value) > 0;
-            case "<":
-                // Both numeric - do numeric comparison
-                if (cellIsNumber && valueIsNumber) {
-                    try {
-                        return Double.parseDouble(cellValue) < Double.parseDouble(value);
-                    } catch (NumberFormatException e) {
-                        return false;
-                    }
-                }
-                // Both boolean values
-                if (isBoolean(cellValue) && isBoolean(value)) {
-                    return !Boolean.parseBoolean(cellValue) && Boolean.parseBoolean(value);
-                }
-                // String comparison
-                return cellValue.compareTo(value) < 0;
-            case ">=":
-                // Both numeric - do numeric comparison
-                if (cellIsNumber && valueIsNumber) {
-                    try {
-                        return Double.parseDouble(cellValue) >= Double.parseDouble(value);
-                    } catch (NumberFormatException e) {
-                        return false;
-                    }
-                }
-                // Both boolean values
-                if (isBoolean(cellValue) && isBoolean(value)) {
-                    return Boolean.parseBoolean(cellValue) || !Boolean.parseBoolean(value);
-                }
-                // String comparison
-                return cellValue.compareTo(value) >= 0;
-            case "<=":
-                // Both numeric - do numeric comparison
-                if (cellIsNumber && valueIsNumber) {
-                    try {
-                        return Double.parseDouble(cellValue) <= Double.parseDouble(value);
-                    } catch (NumberFormatException e) {
-                        return false;
-                    }
-                }
-                // Both boolean values
-                if (isBoolean(cellValue) && isBoolean(value)) {
-                    return !Boolean.parseBoolean(cellValue) || Boolean.parseBoolean(value);
-                }
-                // String comparison
-                return cellValue.compareTo(value) <= 0;
-            case "LIKE":
-                return cellValue.matches(value.replace("%", ".*"));
-            default:
-                return false;
-        }
-    }
-    
     private boolean isNumeric(String str) {
-        return str.matches("-?\\d+(\\.\\d+)?");
-    }
-    
-    private boolean isBoolean(String str) {
-        return str.equalsIgnoreCase("TRUE") || str.equalsIgnoreCase("FALSE");
+        return ColumnType.isNumeric(str);
     }
 
     // Get column names
@@ -475,16 +730,46 @@ public class Table {
 
     // Get all rows
     public List<List<String>> getRows() {
-        return new ArrayList<>(rows);
+        List<List<String>> allRows = new ArrayList<>(getRowCount());
+        for (int slot : allSlots()) {
+            allRows.add(rows.getRow(slot));
+        }
+        return allRows;
     }
+
+    // Live rows only
+    public int getRowCount() {
+        return rows.size() - deadCount;
+    }
+
+    /**
+     * Slots of every live row, in insertion order, for callers that read single cells
+     */
+    public List<Integer> liveSlots() {
+        return allSlots();
+    }
+
+    public List<String> getRow(int rowIndex) {
+        return rows.getRow(rowIndex);
+    }
+
+    public String getCell(int rowIndex, int columnIndex) {
+        return rows.getCell(rowIndex, columnIndex);
+    }
+
+    // Release storage held outside the heap once the table is dropped
+    public void close() {
+        rows.close();
+    }
+
     public List<String> getColumnValues(String columnName) {
         int colIndex = getColumnIndex(columnName);
         if (colIndex == -1) {
             return new ArrayList<>();
         }
         List<String> result = new ArrayList<>();
-        for (List<String> row : rows) {
-            result.add(row.get(colIndex));
+        for (int slot : allSlots()) {
+            result.add(rows.getCell(slot, colIndex));
         }
 
         return result;
@@ -495,7 +780,7 @@ public class Table {
     public String toString () {
         StringBuilder sb = new StringBuilder();
         sb.append(String.join("\t", columnNames)).append("\n");
-        for (List<String> row : rows) {
+        for (List<String> row : getRows()) {
             sb.append(String.join("\t", row)).append("\n");
         }
         return sb.toString();
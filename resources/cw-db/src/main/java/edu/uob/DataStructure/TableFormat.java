@@ -0,0 +1,60 @@
+package edu.uob.DataStructure;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * On-disk format of a table snapshot
+ */
+public interface TableFormat {
+
+    /**
+     * File extension including the dot, e.g. ".tab"
+     */
+    String getExtension();
+
+    /**
+     * Read a snapshot into the given row store, returns null if the file holds no table
+     */
+    Table read(String tableName, File file, RowStore store) throws IOException;
+
+    default Table read(String tableName, File file) throws IOException {
+        return read(tableName, file, new HeapRowStore());
+    }
+
+    void write(List<String> columnNames, List<List<String>> rows, OutputStream out) throws IOException;
+
+    /**
+     * Every format that can be read, so tables can be migrated between them
+     */
+    static List<TableFormat> all() {
+        return Arrays.asList(new TabTableFormat(), new ColumnarTableFormat());
+    }
+
+    static TableFormat fromName(String name) {
+        if (name.trim().equalsIgnoreCase("columnar")) {
+            return new ColumnarTableFormat();
+        }
+        return new TabTableFormat();
+    }
+
+    /**
+     * Create a table from the column names stored in a snapshot
+     */
+    static Table newTable(String tableName, List<String> storedColumns, RowStore store) {
+        List<String> columnNames = new ArrayList<>();
+        for (String column : storedColumns) {
+            if (!column.trim().isEmpty()) {
+                columnNames.add(column.trim().toLowerCase());
+            }
+        }
+        if (!columnNames.contains("id")) {
+            columnNames.add(0, "id");
+        }
+        return new Table(tableName, columnNames, store);
+    }
+}
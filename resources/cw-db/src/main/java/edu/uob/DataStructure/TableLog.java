@@ -0,0 +1,538 @@
+package edu.uob.DataStructure;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Append-only change log for a single table.
+ *
+ * <p>Every INSERT, UPDATE, DELETE and ALTER TABLE is written as small records to
+ * {@code <table>.log} instead of rewriting the whole {@code .tab} file: an inserted
+ * row, the new image of each updated row, or the id of each deleted row, so a point
+ * update costs one record however large the table is. On load the
+ * log is replayed over the {@code .tab} snapshot. Once the log outgrows the
+ * snapshot it is folded back into a fresh snapshot on a background thread.
+ * Appends are queued for the {@link AsyncLogWriter} thread; {@link #sync()} waits for
+ * them and forces them to disk and is driven by the {@link PersistenceManager}
+ * according to the durability policy.
+ *
+ * <p>Folding never loses or double-applies records after a crash: the live log is
+ * first renamed to {@code .log.ckpt}, the snapshot is written to a {@code .tmp} file,
+ * the checkpoint log is renamed to {@code .log.done} and only then is the new
+ * snapshot moved over the old one. {@link #recover()} finishes or rolls back
+ * whichever step was interrupted.
+ *
+ * <p>If a record cannot be written the log has a gap, so it stays failed: every
+ * later append and sync throws, and records already queued are dropped, until a
+ * snapshot rewritten from the in-memory table replaces the log.
+ */
+public class TableLog {
+    private static final int MIN_FOLD_RECORDS = 1024;
+
+    private static final String INSERT = "I";
+    private static final String ROW = "R";
+    private static final String REMOVE = "X";
+    // ALTER TABLE, applied to the table without rewriting the snapshot
+    private static final String ADD_COLUMN = "AC";
+    private static final String DROP_COLUMN = "DC";
+    // Statement-level records written by older versions, still replayed
+    private static final String UPDATE = "U";
+    private static final String DELETE = "D";
+
+    // One shared daemon thread folds logs for every table
+    private static final ExecutorService FOLDER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "table-log-folder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String path;
+    private final String tableName;
+    private final TableFormat format;
+    private final File tableFile;
+    private final File logFile;
+    private final File checkpointFile;
+    private final File doneFile;
+    private final File tempFile;
+    // Guards the open log file, which the log writer thread appends to
+    private final Object ioLock = new Object();
+    private FileOutputStream output;
+    private BufferedWriter writer;
+    private boolean unsynced;
+    // The first write that failed, cleared only by installing a new snapshot
+    private volatile IOException failure;
+    private int recordCount;
+    private Future<?> pendingFold;
+
+    public TableLog(String path, String tableName, TableFormat format) {
+        this.path = path;
+        this.tableName = tableName;
+        this.format = format;
+        this.tableFile = new File(path, tableName + format.getExtension());
+        this.logFile = new File(path, tableName + ".log");
+        this.checkpointFile = new File(path, tableName + ".log.ckpt");
+        this.doneFile = new File(path, tableName + ".log.done");
+        this.tempFile = new File(path, tableName + format.getExtension() + ".tmp");
+    }
+
+    /**
+     * Finish or roll back a fold that was interrupted by a crash.
+     * Must run before the snapshot is read.
+     */
+    public void recover() throws IOException {
+        // The fold may have been writing a different format before a restart
+        for (TableFormat snapshotFormat : TableFormat.all()) {
+            File snapshotTemp = new File(path, tableName + snapshotFormat.getExtension() + ".tmp");
+            if (doneFile.exists() && snapshotTemp.exists()) {
+                // The new snapshot was complete, only installing it was interrupted
+                moveAtomically(snapshotTemp, new File(path, tableName + snapshotFormat.getExtension()));
+            }
+            // A half-written snapshot is useless, the checkpoint log still holds its records
+            Files.deleteIfExists(snapshotTemp.toPath());
+        }
+        Files.deleteIfExists(doneFile.toPath());
+    }
+
+    /**
+     * Replay the checkpoint log (if a fold was interrupted) and then the live log
+     * over a table that has just been loaded from its snapshot.
+     */
+    public synchronized void replay(Table table) throws IOException {
+        Replay replay = new Replay(table);
+        int replayed = replayFile(checkpointFile, replay) + replayFile(logFile, replay);
+        replay.finish();
+        recordCount = replayed;
+    }
+
+    private int replayFile(File file, Replay replay) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        int replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                try {
+                    switch (fields[0]) {
+                        case INSERT:
+                            replay.insert(unescapeRow(fields));
+                            break;
+                        case ROW:
+                            replay.replace(unescapeRow(fields));
+                            break;
+                        case REMOVE:
+                            replay.remove(unescape(fields[1]));
+                            break;
+                        case ADD_COLUMN:
+                            replay.table.addColumn(unescape(fields[1]));
+                            break;
+                        case DROP_COLUMN:
+                            replay.table.dropColumn(unescape(fields[1]));
+                            break;
+                        case UPDATE:
+                            replay.flushRemovals();
+                            replay.table.updateRows(unescape(fields[1]), unescape(fields[2]), unescape(fields[3]));
+                            break;
+                        case DELETE:
+                            replay.flushRemovals();
+                            replay.table.deleteRows(unescape(fields[1]));
+                            break;
+                        default:
+                            continue;
+                    }
+                    replayed++;
+                } catch (RuntimeException e) {
+                    // A torn record at the tail of the log after a crash
+                    System.err.println("Warning: Skipping unreadable log record in " + file.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+        return replayed;
+    }
+
+    private static List<String> unescapeRow(String[] fields) {
+        List<String> row = new ArrayList<>(fields.length - 1);
+        for (int i = 1; i < fields.length; i++) {
+            row.add(unescape(fields[i]));
+        }
+        return row;
+    }
+
+    /**
+     * Applies row-level records by id, found through the table's id index. Deleted
+     * rows are removed in one pass at the end, so replay stays linear.
+     */
+    private static final class Replay {
+        private final Table table;
+        private final BitSet removed = new BitSet();
+
+        private Replay(Table table) {
+            this.table = table;
+        }
+
+        private void insert(List<String> row) {
+            table.addRowDirect(row);
+        }
+
+        private void replace(List<String> row) {
+            Integer slot = table.slotOf(row.get(0));
+            if (slot == null || removed.get(slot)) {
+                throw new IllegalStateException("No row with id " + row.get(0));
+            }
+            table.replaceRow(slot, row);
+        }
+
+        private void remove(String id) {
+            Integer slot = table.slotOf(id);
+            if (slot != null) {
+                removed.set(slot);
+            }
+        }
+
+        // Statement-level records see the table as it is, and renumber the slots
+        private void flushRemovals() {
+            finish();
+        }
+
+        private void finish() {
+            if (!removed.isEmpty()) {
+                table.removeSlots(removed);
+                removed.clear();
+            }
+            // Replayed statements are already on disk
+            table.takeDirtyRows();
+        }
+    }
+
+    public synchronized void appendInsert(List<String> row) throws IOException {
+        append(INSERT + "\t" + escapeRow(row));
+    }
+
+    /**
+     * Log the new image of every changed row, or the id of every deleted one
+     */
+    public synchronized void appendChanges(Map<String, List<String>> changedRows) throws IOException {
+        for (Map.Entry<String, List<String>> change : changedRows.entrySet()) {
+            if (change.getValue() == null) {
+                append(REMOVE + "\t" + escape(change.getKey()));
+            } else {
+                append(ROW + "\t" + escapeRow(change.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Log an ALTER TABLE; rows logged after it have the new set of columns
+     */
+    public synchronized void appendAlter(String alterationType, String columnName) throws IOException {
+        String type = alterationType.equalsIgnoreCase("ADD") ? ADD_COLUMN : DROP_COLUMN;
+        append(type + "\t" + escape(columnName));
+    }
+
+    private static String escapeRow(List<String> row) {
+        String[] fields = new String[row.size()];
+        for (int i = 0; i < row.size(); i++) {
+            fields[i] = escape(row.get(i));
+        }
+        return String.join("\t", fields);
+    }
+
+    // Handed to the log writer thread, which calls writeRecord
+    private void append(String record) throws IOException {
+        throwIfFailed();
+        AsyncLogWriter.shared().write(this, record);
+        recordCount++;
+    }
+
+    void writeRecord(String record) throws IOException {
+        synchronized (ioLock) {
+            if (failure != null) {
+                // Replaying records after a gap would apply them to the wrong rows
+                return;
+            }
+            if (writer == null) {
+                output = new FileOutputStream(logFile, true);
+                writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            }
+            writer.write(record);
+            writer.newLine();
+            unsynced = true;
+        }
+    }
+
+    void failed(Exception e) {
+        System.err.println("Error writing log record for " + tableFile.getName() + ": " + e.getMessage());
+        synchronized (ioLock) {
+            if (failure == null) {
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * True once a record was lost; the log then needs a new snapshot from {@link #writeSnapshot}
+     */
+    public boolean hasFailed() {
+        return failure != null;
+    }
+
+    private void throwIfFailed() throws IOException {
+        IOException error = failure;
+        if (error != null) {
+            throw new IOException("Log for " + tableFile.getName() + " lost a record: " + error.getMessage(), error);
+        }
+    }
+
+    /**
+     * Wait for the queued records, then write them out and fsync the log file.
+     * Not synchronized on the log, so statements can keep appending meanwhile.
+     */
+    public void sync() throws IOException {
+        AsyncLogWriter.shared().await();
+        throwIfFailed();
+        synchronized (ioLock) {
+            if (writer == null || !unsynced) {
+                return;
+            }
+            writer.flush();
+            output.getChannel().force(false);
+            unsynced = false;
+        }
+    }
+
+    /**
+     * The log is folded once it holds more records than the snapshot has rows,
+     * which keeps the cost of rewriting the snapshot amortised O(1) per record.
+     */
+    public synchronized boolean needsFold(int rowCount) {
+        return recordCount >= Math.max(MIN_FOLD_RECORDS, rowCount);
+    }
+
+    /**
+     * True when records were appended or replayed since the last snapshot
+     */
+    public synchronized boolean hasRecords() {
+        return recordCount > 0;
+    }
+
+    /**
+     * Fold the log into a snapshot of the given rows on the background thread.
+     * The rows must already be a private copy of the table contents.
+     */
+    public synchronized void fold(List<String> columnNames, List<List<String>> rows) throws IOException {
+        IOException rotatedFailure = rotate();
+        pendingFold = FOLDER.submit(() -> {
+            try {
+                installSnapshot(columnNames, rows, rotatedFailure);
+            } catch (IOException e) {
+                System.err.println("Error folding log for " + tableFile.getName() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Write a full snapshot synchronously and start an empty log.
+     * Used for new tables and to replace a log that lost a record.
+     */
+    public synchronized void writeSnapshot(List<String> columnNames, List<List<String>> rows) throws IOException {
+        IOException rotatedFailure = rotate();
+        installSnapshot(columnNames, rows, rotatedFailure);
+    }
+
+    // Returns the failure the rotated records had, which the new snapshot clears
+    private IOException rotate() throws IOException {
+        awaitPendingFold();
+        IOException rotatedFailure = failure;
+        if (rotatedFailure == null) {
+            closeWriter();
+        } else {
+            // The records are superseded by the snapshot, so there is nothing to sync
+            AsyncLogWriter.shared().await();
+            discardWriter();
+        }
+        if (checkpointFile.exists()) {
+            // Records left over from an interrupted fold, keep them ahead of the live log
+            if (logFile.exists()) {
+                Files.write(checkpointFile.toPath(), Files.readAllBytes(logFile.toPath()), StandardOpenOption.APPEND);
+                Files.delete(logFile.toPath());
+            }
+        } else if (logFile.exists()) {
+            moveAtomically(logFile, checkpointFile);
+        }
+        recordCount = 0;
+        return rotatedFailure;
+    }
+
+    private void installSnapshot(List<String> columnNames, List<List<String>> rows,
+                                 IOException rotatedFailure) throws IOException {
+        try (FileOutputStream snapshot = new FileOutputStream(tempFile)) {
+            format.write(columnNames, rows, snapshot);
+            snapshot.getChannel().force(false);
+        }
+        if (checkpointFile.exists()) {
+            moveAtomically(checkpointFile, doneFile);
+        } else {
+            Files.write(doneFile.toPath(), new byte[0]);
+        }
+        moveAtomically(tempFile, tableFile);
+        deleteOtherFormats();
+        Files.delete(doneFile.toPath());
+        synchronized (ioLock) {
+            // A write that failed after the rotation left a gap in the new log
+            if (failure == rotatedFailure) {
+                failure = null;
+            }
+        }
+    }
+
+    // A table migrated to a new format no longer needs its old snapshot
+    private void deleteOtherFormats() throws IOException {
+        for (TableFormat snapshotFormat : TableFormat.all()) {
+            File snapshotFile = new File(path, tableName + snapshotFormat.getExtension());
+            if (!snapshotFile.equals(tableFile)) {
+                Files.deleteIfExists(snapshotFile.toPath());
+            }
+        }
+    }
+
+    private void awaitPendingFold() throws IOException {
+        if (pendingFold == null) {
+            return;
+        }
+        try {
+            pendingFold.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while folding table log", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Table log fold failed", e.getCause());
+        } finally {
+            pendingFold = null;
+        }
+    }
+
+    private void closeWriter() throws IOException {
+        sync();
+        synchronized (ioLock) {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+                output = null;
+            }
+        }
+    }
+
+    private void discardWriter() {
+        synchronized (ioLock) {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // The log file is already known to be broken
+                }
+                writer = null;
+                output = null;
+            }
+            unsynced = false;
+        }
+    }
+
+    /**
+     * Wait for background work and release the log file.
+     */
+    public synchronized void close() throws IOException {
+        awaitPendingFold();
+        closeWriter();
+    }
+
+    /**
+     * Close the log and remove every file that belongs to the table.
+     */
+    public synchronized boolean delete() throws IOException {
+        awaitPendingFold();
+        // Nothing of the table is kept, so its pending records need not reach the disk
+        AsyncLogWriter.shared().await();
+        discardWriter();
+        for (File file : Arrays.asList(logFile, checkpointFile, doneFile, tempFile)) {
+            Files.deleteIfExists(file.toPath());
+        }
+        deleteOtherFormats();
+        return !tableFile.exists() || tableFile.delete();
+    }
+
+    /**
+     * Replace a small file next to the snapshot the way a snapshot is replaced: the
+     * content is synced to a temp file first, so a crash leaves the old or the new file.
+     */
+    static void writeAtomically(File file, byte[] content) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            output.write(content);
+            output.getChannel().force(false);
+        }
+        moveAtomically(temp, file);
+    }
+
+    private static void moveAtomically(File source, File target) throws IOException {
+        Files.move(source.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 't': sb.append('\t'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    default: sb.append(next);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,148 @@
+package edu.uob.DataStructure;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statistics per block of rows for each column of a {@link Table}: the NULL count,
+ * the range of numeric values and the range of other text. A scan skips blocks
+ * whose statistics rule out the condition.
+ *
+ * <p>Writes only widen the ranges and deleted rows are not subtracted, so the
+ * statistics can be looser than the data but never exclude a matching row.
+ */
+class ZoneMap {
+    static final int BLOCK_ROWS = 4096;
+
+    // Zones of each column, by block
+    private final List<List<Zone>> columns = new ArrayList<>();
+
+    private static final class Zone {
+        private int rows;
+        private int nulls;
+        private boolean hasNumbers;
+        private double minNumber;
+        private double maxNumber;
+        private boolean hasBooleans;
+        // Smallest and largest non-numeric value, TRUE/FALSE included, null if none
+        private String minText;
+        private String maxText;
+
+        private void add(String value) {
+            rows++;
+            if (value.equals("NULL")) {
+                nulls++;
+            } else {
+                include(value);
+            }
+        }
+
+        private void include(String value) {
+            if (ColumnType.isNumeric(value)) {
+                double number = Double.parseDouble(value);
+                minNumber = hasNumbers ? Math.min(minNumber, number) : number;
+                maxNumber = hasNumbers ? Math.max(maxNumber, number) : number;
+                hasNumbers = true;
+                return;
+            }
+            if (isBoolean(value)) {
+                hasBooleans = true;
+            }
+            if (minText == null || value.compareTo(minText) < 0) {
+                minText = value;
+            }
+            if (maxText == null || value.compareTo(maxText) > 0) {
+                maxText = value;
+            }
+        }
+    }
+
+    /**
+     * Account for a row appended at the given slot
+     */
+    void addRow(int slot, List<String> row) {
+        while (columns.size() < row.size()) {
+            columns.add(new ArrayList<>());
+        }
+        int block = slot / BLOCK_ROWS;
+        for (int column = 0; column < row.size(); column++) {
+            List<Zone> zones = columns.get(column);
+            while (zones.size() <= block) {
+                zones.add(new Zone());
+            }
+            zones.get(block).add(row.get(column));
+        }
+    }
+
+    void update(int slot, int column, String oldValue, String newValue) {
+        Zone zone = columns.get(column).get(slot / BLOCK_ROWS);
+        if (oldValue.equals("NULL")) {
+            zone.nulls--;
+        }
+        if (newValue.equals("NULL")) {
+            zone.nulls++;
+        } else {
+            zone.include(newValue);
+        }
+    }
+
+    /**
+     * False only if no row of the block can satisfy "column operator value",
+     * following the comparison rules of {@link Table}
+     */
+    boolean mayMatch(int block, int column, String operator, String value) {
+        Zone zone = columns.get(column).get(block);
+        // Nothing compares true against NULL
+        if (zone.nulls == zone.rows || value.equals("NULL")) {
+            return false;
+        }
+        if (isBoolean(value)) {
+            return true;
+        }
+        boolean range = !operator.equals("==") && !operator.equals("!=") && !operator.equals("LIKE");
+        if (ColumnType.isNumeric(value)) {
+            double number = Double.parseDouble(value);
+            if (operator.equals("==")) {
+                // Only a number can equal a number ignoring case
+                return zone.hasNumbers && zone.minNumber <= number && number <= zone.maxNumber;
+            }
+            // Text other than TRUE/FALSE never compares to a number
+            return !range || zone.hasBooleans || (zone.hasNumbers && numberInRange(zone, operator, number));
+        }
+        if (range) {
+            // Numbers never compare to text, so only the text range counts
+            return zone.minText != null && textInRange(zone, operator, value);
+        }
+        return true;
+    }
+
+    private static boolean numberInRange(Zone zone, String operator, double number) {
+        switch (operator) {
+            case ">":
+                return zone.maxNumber > number;
+            case ">=":
+                return zone.maxNumber >= number;
+            case "<":
+                return zone.minNumber < number;
+            default:
+                return zone.minNumber <= number;
+        }
+    }
+
+    private static boolean textInRange(Zone zone, String operator, String value) {
+        switch (operator) {
+            case ">":
+                return zone.maxText.compareTo(value) > 0;
+            case ">=":
+                return zone.maxText.compareTo(value) >= 0;
+            case "<":
+                return zone.minText.compareTo(value) < 0;
+            default:
+                return zone.minText.compareTo(value) <= 0;
+        }
+    }
+
+    private static boolean isBoolean(String value) {
+        return value.equalsIgnoreCase("TRUE") || value.equalsIgnoreCase("FALSE");
+    }
+}
@@ -2,8 +2,14 @@ package edu.uob;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 
 public class CompleteSQLCommandTests {
@@ -15,6 +21,11 @@ public class CompleteSQLCommandTests {
         server = new DBServer();
     }
 
+    @AfterEach
+    public void teardown() {
+        server.close();
+    }
+
     private String generateRandomName() {
         String randomName = "";
         for (int i = 0; i < 10; i++) randomName += (char) (97 + (Math.random() * 25.0));
@@ -865,4 +876,405 @@ public class CompleteSQLCommandTests {
         assertTrue(response.contains("[OK]") && !response.contains("John"),
                 "Empty string comparisons should work");
     }
+
+    //==================================
+    // PERSISTENCE test
+    //==================================
+
+    @Test
+    public void testFlushPersistsChanges() {
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        sendCommandToServer("CREATE TABLE marks (name, mark, pass);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Simon', 65, TRUE);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Rob', 35, FALSE);");
+        sendCommandToServer("UPDATE marks SET mark = 40 WHERE name == 'Rob';");
+        sendCommandToServer("DELETE FROM marks WHERE name == 'Simon';");
+
+        String response = sendCommandToServer("FLUSH;");
+        assertTrue(response.contains("[OK]"), "FLUSH should return [OK]");
+
+        server.close();
+        server = new DBServer();
+        sendCommandToServer("USE " + randomName + ";");
+        response = sendCommandToServer("SELECT * FROM marks;");
+        assertTrue(response.contains("Rob") && response.contains("40") && !response.contains("Simon"),
+                "Logged INSERT, UPDATE and DELETE should survive a restart");
+    }
+
+    @Test
+    public void testCheckpointTruncatesLog() throws InterruptedException {
+        System.setProperty("db.checkpointIntervalMs", "20");
+        server.close();
+        try {
+            server = new DBServer();
+        } finally {
+            System.clearProperty("db.checkpointIntervalMs");
+        }
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        sendCommandToServer("CREATE TABLE marks (name, mark);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Simon', 65);");
+        sendCommandToServer("UPDATE marks SET mark = 70 WHERE name == 'Simon';");
+
+        File log = Paths.get("databases", randomName, "marks.log").toFile();
+        for (int i = 0; i < 100 && log.exists(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(!log.exists(), "The checkpointer should fold the log into the snapshot");
+
+        server.close();
+        server = new DBServer();
+        sendCommandToServer("USE " + randomName + ";");
+        String response = sendCommandToServer("SELECT * FROM marks;");
+        assertTrue(response.contains("Simon") && response.contains("70"), "Checkpointed rows should survive a restart");
+    }
+
+    @Test
+    public void testFailedLogWriteIsRepairedFromMemory() {
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        sendCommandToServer("CREATE TABLE marks (name, mark);");
+        // A directory where the log file should be makes the next write fail
+        File log = Paths.get("databases", randomName, "marks.log").toFile();
+        assertTrue(log.mkdir());
+        String response = sendCommandToServer("INSERT INTO marks VALUES ('Simon', 65);");
+        assertTrue(response.contains("[ERROR]"), "A statement whose record was not written should fail");
+
+        response = sendCommandToServer("INSERT INTO marks VALUES ('Rob', 35);");
+        assertTrue(response.contains("[OK]"), "The next statement should rewrite the table instead of the log");
+        server.close();
+        server = new DBServer();
+        sendCommandToServer("USE " + randomName + ";");
+        response = sendCommandToServer("SELECT * FROM marks;");
+        assertTrue(response.contains("Simon") && response.contains("Rob"),
+                "No change should be lost once the log has failed");
+    }
+
+    @Test
+    public void testIdLookupAfterDeletes() {
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        sendCommandToServer("CREATE TABLE marks (name, mark);");
+        for (int i = 1; i <= 100; i++) {
+            sendCommandToServer("INSERT INTO marks VALUES ('student" + i + "', " + i + ");");
+        }
+        // Enough deletes to compact the table, which renumbers the rows
+        sendCommandToServer("DELETE FROM marks WHERE mark < 81;");
+        String response = sendCommandToServer("SELECT name FROM marks WHERE id == 90;");
+        assertTrue(response.contains("student90"), "The id lookup should find the row after compaction");
+        response = sendCommandToServer("SELECT name FROM marks WHERE id == 50;");
+        assertTrue(!response.contains("student50"), "Deleted rows should not be found by id");
+        response = sendCommandToServer("SELECT name FROM marks WHERE (id == 85) OR (mark == 85);");
+        assertTrue(response.contains("student85") && response.indexOf("student85") == response.lastIndexOf("student85"),
+                "OR should return each row once");
+    }
+
+    @Test
+    public void testCreateAndDropIndex() {
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        sendCommandToServer("CREATE TABLE marks (name, mark);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Simon', 65);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Rob', 40);");
+        String response = sendCommandToServer("CREATE INDEX ON marks (name);");
+        assertTrue(response.contains("[OK]"), "Indexing an existing column should succeed");
+        response = sendCommandToServer("CREATE INDEX ON marks (grade);");
+        assertTrue(response.contains("[ERROR]"), "Indexing a missing column should fail");
+
+        sendCommandToServer("INSERT INTO marks VALUES ('Chris', 20);");
+        sendCommandToServer("UPDATE marks SET name = 'Sion' WHERE mark == 65;");
+        response = sendCommandToServer("SELECT mark FROM marks WHERE name == 'sion';");
+        assertTrue(response.contains("65"), "Index lookups should see updated rows and ignore case like a scan");
+        response = sendCommandToServer("SELECT mark FROM marks WHERE name == 'Simon';");
+        assertTrue(!response.contains("65"), "Index lookups should not see old values");
+
+        // The index is rebuilt when the table is loaded again
+        server.close();
+        server = new DBServer();
+        sendCommandToServer("USE " + randomName + ";");
+        response = sendCommandToServer("SELECT mark FROM marks WHERE name == 'Chris';");
+        assertTrue(response.contains("20"), "Inserted rows should be found through the reloaded index");
+        response = sendCommandToServer("DROP INDEX ON marks (name);");
+        assertTrue(response.contains("[OK]"), "Dropping an index should succeed");
+        response = sendCommandToServer("DROP INDEX ON marks (name);");
+        assertTrue(response.contains("[ERROR]"), "Dropping a missing index should fail");
+    }
+
+    @Test
+    public void testOrderedIndexRangeQueries() {
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        sendCommandToServer("CREATE TABLE marks (name, mark);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Simon', 65);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Sion', 55);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Rob', NULL);");
+        String response = sendCommandToServer("CREATE INDEX ON marks (mark) USING ORDERED;");
+        assertTrue(response.contains("[OK]"), "Creating an ordered index should succeed");
+        response = sendCommandToServer("CREATE INDEX ON marks (name) USING SORTED;");
+        assertTrue(response.contains("[ERROR]"), "Unknown index kinds should be rejected");
+
+        sendCommandToServer("INSERT INTO marks VALUES ('Chris', 20);");
+        sendCommandToServer("UPDATE marks SET mark = 35 WHERE name == 'Simon';");
+        response = sendCommandToServer("SELECT name FROM marks WHERE mark >= 35;");
+        assertTrue(response.contains("Simon") && response.contains("Sion"), "Range queries should see updated rows");
+        assertTrue(!response.contains("Rob") && !response.contains("Chris"), "NULL and smaller marks should not match");
+        response = sendCommandToServer("SELECT name FROM marks WHERE mark < 35;");
+        assertTrue(response.contains("Chris") && !response.contains("Simon"), "Upper bounds should be exclusive");
+    }
+
+    @Test
+    public void testBitmapIndexFlagFilters() {
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        sendCommandToServer("CREATE TABLE marks (name, pass, late);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Simon', TRUE, FALSE);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Sion', FALSE, FALSE);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Rob', TRUE, TRUE);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Chris', NULL, TRUE);");
+        assertTrue(sendCommandToServer("CREATE INDEX ON marks (pass) USING BITMAP;").contains("[OK]"));
+        assertTrue(sendCommandToServer("CREATE INDEX ON marks (late) USING BITMAP;").contains("[OK]"));
+
+        String response = sendCommandToServer("SELECT name FROM marks WHERE (pass == TRUE) AND (late == FALSE);");
+        assertTrue(response.contains("Simon") && !response.contains("Rob") && !response.contains("Sion"),
+                "AND should intersect the bitmaps");
+        response = sendCommandToServer("SELECT name FROM marks WHERE (pass == FALSE) OR (late == TRUE);");
+        assertTrue(response.contains("Sion") && response.contains("Rob") && response.contains("Chris")
+                && !response.contains("Simon"), "OR should unite the bitmaps");
+        response = sendCommandToServer("SELECT name FROM marks WHERE pass != TRUE;");
+        assertTrue(response.contains("Sion") && !response.contains("Chris"), "!= should never match NULL");
+
+        sendCommandToServer("UPDATE marks SET pass = FALSE WHERE name == 'Rob';");
+        response = sendCommandToServer("SELECT name FROM marks WHERE pass == FALSE;");
+        assertTrue(response.contains("Rob") && response.contains("Sion"), "Bitmaps should follow updates");
+    }
+
+    @Test
+    public void testAlterTableSurvivesRestart() {
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        sendCommandToServer("CREATE TABLE marks (name, mark, pass);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Simon', 65, TRUE);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Rob', 35, FALSE);");
+        assertTrue(sendCommandToServer("ALTER TABLE marks DROP mark;").contains("[OK]"));
+        assertTrue(sendCommandToServer("ALTER TABLE marks ADD grade;").contains("[OK]"));
+        sendCommandToServer("INSERT INTO marks VALUES ('Chris', TRUE, 'A');");
+        sendCommandToServer("UPDATE marks SET grade = 'B' WHERE name == 'Simon';");
+
+        String response = sendCommandToServer("SELECT * FROM marks;");
+        assertTrue(!response.contains("65") && response.contains("grade"), "Dropped columns should not be visible");
+        // The ALTER statements are replayed from the log when the table is loaded again
+        server.close();
+        server = new DBServer();
+        sendCommandToServer("USE " + randomName + ";");
+        response = sendCommandToServer("SELECT * FROM marks;");
+        assertTrue(!response.contains("mark") && !response.contains("65"), "Dropped columns should stay dropped");
+        response = sendCommandToServer("SELECT name FROM marks WHERE grade == 'B';");
+        assertTrue(response.contains("Simon") && !response.contains("Chris"), "Added columns should keep their values");
+        response = sendCommandToServer("SELECT grade FROM marks WHERE name == 'Rob';");
+        assertTrue(response.contains("NULL"), "Rows from before ADD should read NULL");
+    }
+
+    @Test
+    public void testNestedConditionsWithIndexes() {
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        sendCommandToServer("CREATE TABLE marks (name, mark, pass);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Simon', 65, TRUE);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Sion', 55, TRUE);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Rob', 35, FALSE);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Chris', 20, FALSE);");
+        assertTrue(sendCommandToServer("CREATE INDEX ON marks (name);").contains("[OK]"));
+
+        String response = sendCommandToServer(
+                "SELECT name FROM marks WHERE ((pass == TRUE) AND (mark > 60)) OR ((name == 'Chris') AND (mark < 30));");
+        assertTrue(response.contains("Simon") && response.contains("Chris")
+                && !response.contains("Sion") && !response.contains("Rob"), "Nested AND and OR should combine per row");
+        response = sendCommandToServer("SELECT name FROM marks WHERE (name == 'Rob') AND (pass == TRUE);");
+        assertTrue(!response.contains("Rob"), "Rows found through an index should still be tested against the rest");
+        response = sendCommandToServer("SELECT name FROM marks WHERE (grade == 'A') OR (mark >= 55);");
+        assertTrue(response.contains("Simon") && response.contains("Sion") && !response.contains("Rob"),
+                "A missing column should only rule out its own comparison");
+    }
+
+    @Test
+    public void testTablesAreLoadedOnFirstAccess() throws IOException {
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        sendCommandToServer("CREATE TABLE marks (name, mark);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Simon', 65);");
+
+        server.close();
+        // USE reads the setting too, so it stays set until the table has been used
+        System.setProperty("db.preload", "none");
+        try {
+            server = new DBServer();
+            sendCommandToServer("USE " + randomName + ";");
+            // Neither starting the server nor USE has read the file, so a row added now is seen
+            Files.writeString(Paths.get("databases", randomName, "marks.tab"), "9\tChris\t20\n", StandardOpenOption.APPEND);
+            String response = sendCommandToServer("SELECT * FROM marks;");
+            assertTrue(response.contains("Simon") && response.contains("Chris"),
+                    "A table should be read from disk when it is first used");
+        } finally {
+            System.clearProperty("db.preload");
+        }
+    }
+
+    @Test
+    public void testPreloadAllLoadsEveryTable() {
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        for (int table = 1; table <= 4; table++) {
+            sendCommandToServer("CREATE TABLE marks" + table + " (name, mark);");
+            for (int row = 1; row <= 3; row++) {
+                sendCommandToServer("INSERT INTO marks" + table + " VALUES ('student" + table + row + "', " + row + ");");
+            }
+        }
+        sendCommandToServer("UPDATE marks2 SET mark = 50 WHERE name == 'student21';");
+        sendCommandToServer("DELETE FROM marks3 WHERE mark == 2;");
+
+        server.close();
+        // Every table of every database is parsed on the loader pool at startup
+        System.setProperty("db.preload", "all");
+        try {
+            server = new DBServer();
+        } finally {
+            System.clearProperty("db.preload");
+        }
+        sendCommandToServer("USE " + randomName + ";");
+        for (int table = 1; table <= 4; table++) {
+            String response = sendCommandToServer("SELECT name FROM marks" + table + ";");
+            for (int row = 1; row <= 3; row++) {
+                boolean deleted = table == 3 && row == 2;
+                assertTrue(response.contains("student" + table + row) != deleted,
+                        "Preloaded table marks" + table + " should hold its rows");
+            }
+        }
+        String response = sendCommandToServer("SELECT mark FROM marks2 WHERE name == 'student21';");
+        assertTrue(response.contains("50"), "Preloaded tables should replay their logs");
+    }
+
+    @Test
+    public void testRestartReplaysMixedLog() {
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        sendCommandToServer("CREATE TABLE marks (name, mark, pass);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Simon', 65, TRUE);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Sion', 55, TRUE);");
+        sendCommandToServer("INSERT INTO marks VALUES ('Rob', 35, FALSE);");
+        sendCommandToServer("UPDATE marks SET mark = 70 WHERE name == 'Simon';");
+        sendCommandToServer("DELETE FROM marks WHERE name == 'Sion';");
+        sendCommandToServer("ALTER TABLE marks DROP pass;");
+        sendCommandToServer("ALTER TABLE marks ADD grade;");
+        sendCommandToServer("UPDATE marks SET grade = 'A' WHERE name == 'Simon';");
+        sendCommandToServer("INSERT INTO marks VALUES ('Chris', 20, 'F');");
+        // Far below the fold threshold, so the restart has to replay every record
+        assertTrue(Paths.get("databases", randomName, "marks.log").toFile().exists(),
+                "The changes should still be in the log");
+
+        server.close();
+        server = new DBServer();
+        sendCommandToServer("USE " + randomName + ";");
+        String response = sendCommandToServer("SELECT * FROM marks;");
+        String expected = "[OK]\nid\tname\tmark\tgrade\n"
+                + "1\tSimon\t70\tA\n"
+                + "3\tRob\t35\tNULL\n"
+                + "4\tChris\t20\tF\n";
+        assertTrue(response.trim().equals(expected.trim()), "Replaying the log should rebuild the table exactly");
+    }
+
+    @Test
+    public void testQueriesAfterDeadRowsAreCompacted() {
+        String randomName = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        sendCommandToServer("CREATE TABLE marks (name, mark, grade);");
+        for (int i = 1; i <= 100; i++) {
+            String grade = i % 10 == 0 ? "A" : "B";
+            sendCommandToServer("INSERT INTO marks VALUES ('s" + i + "x', " + i + ", '" + grade + "');");
+        }
+        sendCommandToServer("CREATE INDEX ON marks (grade);");
+        sendCommandToServer("CREATE INDEX ON marks (mark) USING ORDERED;");
+        // 80 dead rows pass both the minimum and the dead ratio, so the store is compacted
+        String response = sendCommandToServer("DELETE FROM marks WHERE mark <= 80;");
+        assertTrue(response.contains("[OK]"), "DELETE should return [OK]");
+
+        response = sendCommandToServer("SELECT name FROM marks;");
+        for (int i = 1; i <= 100; i++) {
+            assertTrue(response.contains("s" + i + "x") == (i > 80), "Only the rows that were not deleted should remain");
+        }
+        response = sendCommandToServer("SELECT name FROM marks WHERE id == 90;");
+        assertTrue(response.contains("s90x") && !response.contains("s81x"), "Ids should still find their rows");
+        response = sendCommandToServer("SELECT name FROM marks WHERE id == 20;");
+        assertTrue(response.contains("[OK]") && !response.contains("x"), "Deleted ids should find nothing");
+        response = sendCommandToServer("SELECT name FROM marks WHERE grade == 'A';");
+        assertTrue(response.contains("s90x") && response.contains("s100x") && !response.contains("s10x")
+                && !response.contains("s81x"), "The hash index should point at the moved rows");
+        response = sendCommandToServer("SELECT name FROM marks WHERE mark >= 95;");
+        assertTrue(response.contains("s95x") && response.contains("s100x") && !response.contains("s94x"),
+                "The ordered index should point at the moved rows");
+
+        sendCommandToServer("INSERT INTO marks VALUES ('Chris', 20, 'C');");
+        response = sendCommandToServer("SELECT id FROM marks WHERE name == 'Chris';");
+        assertTrue(response.contains("101"), "Compaction should not reuse ids");
+        sendCommandToServer("DELETE FROM marks WHERE id == 95;");
+        response = sendCommandToServer("SELECT name FROM marks WHERE mark >= 95;");
+        assertTrue(!response.contains("s95x") && response.contains("s96x"), "Rows should still be deletable by id");
+    }
+
+    @Test
+    public void testClosingServerRemovesScratchFiles() {
+        String randomName = generateRandomName();
+        String lsmTable = generateRandomName();
+        String pagedTable = generateRandomName();
+        sendCommandToServer("CREATE DATABASE " + randomName + ";");
+        sendCommandToServer("USE " + randomName + ";");
+        for (String table : new String[]{lsmTable, pagedTable}) {
+            sendCommandToServer("CREATE TABLE " + table + " (name, mark);");
+            sendCommandToServer("INSERT INTO " + table + " VALUES ('Simon', 65);");
+            sendCommandToServer("INSERT INTO " + table + " VALUES ('Rob', 35);");
+            sendCommandToServer("INSERT INTO " + table + " VALUES ('Chris', 20);");
+        }
+
+        server.close();
+        System.setProperty("db.storage." + lsmTable, "lsm");
+        System.setProperty("db.storage." + pagedTable, "paged");
+        System.setProperty("db.lsmMemtableRows", "2");
+        try {
+            server = new DBServer();
+            sendCommandToServer("USE " + randomName + ";");
+            sendCommandToServer("SELECT * FROM " + lsmTable + ";");
+            sendCommandToServer("SELECT * FROM " + pagedTable + ";");
+        } finally {
+            System.clearProperty("db.storage." + lsmTable);
+            System.clearProperty("db.storage." + pagedTable);
+            System.clearProperty("db.lsmMemtableRows");
+        }
+        File databaseFolder = Paths.get("databases", randomName).toFile();
+        File tempFolder = new File(System.getProperty("java.io.tmpdir"));
+        String segmentPrefix = lsmTable + ".seg.";
+        String pagePrefix = "table-" + randomName + "." + pagedTable + "-";
+        assertTrue(databaseFolder.list((dir, file) -> file.startsWith(segmentPrefix)).length > 0,
+                "The LSM table should have written segments");
+        assertTrue(tempFolder.list((dir, file) -> file.startsWith(pagePrefix)).length > 0,
+                "The paged table should have a page file");
+
+        server.close();
+        assertTrue(databaseFolder.list((dir, file) -> file.startsWith(segmentPrefix)).length == 0,
+                "Closing the server should remove the segment files");
+        assertTrue(tempFolder.list((dir, file) -> file.startsWith(pagePrefix)).length == 0,
+                "Closing the server should remove the page file");
+    }
 }
@@ -0,0 +1,264 @@
+package edu.uob;
+
+import edu.uob.DataStructure.BufferPool;
+import edu.uob.DataStructure.ColumnarRowStore;
+import edu.uob.DataStructure.ColumnType;
+import edu.uob.DataStructure.ColumnarTableFormat;
+import edu.uob.DataStructure.LsmRowStore;
+import edu.uob.DataStructure.OffHeapRowStore;
+import edu.uob.DataStructure.PagedRowStore;
+import edu.uob.DataStructure.TabTableFormat;
+import edu.uob.DataStructure.Table;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TableFormatTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testColumnarRoundTrip() throws IOException {
+        List<String> columns = Arrays.asList("id", "name", "mark", "score", "pass");
+        List<List<String>> rows = new ArrayList<>();
+        rows.add(Arrays.asList("1", "Simon", "65", "1.5", "TRUE"));
+        rows.add(Arrays.asList("2", "Sion", "007", "NULL", "FALSE"));
+        rows.add(Arrays.asList("3", "NULL", "-3", "2.25", "NULL"));
+
+        File file = tempDir.resolve("marks.col").toFile();
+        ColumnarTableFormat format = new ColumnarTableFormat();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            format.write(columns, rows, out);
+        }
+        Table table = format.read("marks", file);
+
+        assertEquals(columns, table.getColumnNames());
+        assertEquals(rows, table.getRows());
+    }
+
+    @Test
+    void testCompressedColumnarRoundTrip() throws IOException {
+        List<String> columns = Arrays.asList("id", "name", "pass");
+        List<List<String>> rows = new ArrayList<>();
+        for (int i = 1; i <= 20000; i++) {
+            rows.add(Arrays.asList(String.valueOf(i), "student" + (i % 7), i % 3 == 0 ? "NULL" : "TRUE"));
+        }
+        File plainFile = tempDir.resolve("plain.col").toFile();
+        File compressedFile = tempDir.resolve("marks.col").toFile();
+        try (FileOutputStream plain = new FileOutputStream(plainFile);
+             FileOutputStream compressed = new FileOutputStream(compressedFile)) {
+            new ColumnarTableFormat().write(columns, rows, plain);
+            new ColumnarTableFormat(true).write(columns, rows, compressed);
+        }
+        // Any columnar format instance reads both variants
+        Table table = new ColumnarTableFormat().read("marks", compressedFile);
+
+        assertEquals(rows, table.getRows());
+        assertTrue(compressedFile.length() < plainFile.length());
+    }
+
+    @Test
+    void testColumnarRejectsOtherFiles() throws IOException {
+        File file = tempDir.resolve("marks.col").toFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("id\tname\n".getBytes());
+        }
+        assertThrows(IOException.class, () -> new ColumnarTableFormat().read("marks", file));
+    }
+
+    @Test
+    void testTabReaderSplitsLikeReadAllLines() throws IOException {
+        File file = tempDir.resolve("marks.tab").toFile();
+        Files.writeString(file.toPath(), "id\tname\tmark\r\n1\tSimon\t\t\r\n2\t\t35\r3\tRob\t40");
+        Table table = new TabTableFormat().read("marks", file);
+
+        assertEquals(Arrays.asList("id", "name", "mark"), table.getColumnNames());
+        assertEquals(Arrays.asList(
+                Arrays.asList("1", "Simon", "NULL"),
+                Arrays.asList("2", "", "35"),
+                Arrays.asList("3", "Rob", "40")), table.getRows());
+    }
+
+    @Test
+    void testMappedTabMatchesHeapRead() throws IOException {
+        File file = tempDir.resolve("marks.tab").toFile();
+        Files.writeString(file.toPath(), "id\tname\tmark\tpass\n1\tSimon\t65\tTRUE\n2\tRob\t\tFALSE\n3\tChris\t20\t\n");
+        TabTableFormat format = new TabTableFormat();
+        Table heapTable = format.read("marks", file);
+        Table mappedTable = format.map("marks", file);
+
+        assertEquals(heapTable.getRows(), mappedTable.getRows());
+        assertEquals(heapTable.evaluateCondition("mark < 30"), mappedTable.evaluateCondition("mark < 30"));
+    }
+
+    @Test
+    void testEncodedStoresMatchHeapStore() throws IOException {
+        StringBuilder content = new StringBuilder("id\tname\tmark\n");
+        for (int i = 1; i <= 2000; i++) {
+            content.append(i).append("\tstudent").append(i).append("\t").append(i % 100).append("\n");
+        }
+        File file = tempDir.resolve("marks.tab").toFile();
+        Files.writeString(file.toPath(), content.toString());
+        TabTableFormat format = new TabTableFormat();
+        Table heapTable = format.read("marks", file);
+        // Two 8KB frames for about 40KB of rows forces pages to be evicted and read back
+        Table pagedTable = format.read("marks", file, new PagedRowStore("marks", new BufferPool(2)));
+        Table offHeapTable = format.read("marks", file, new OffHeapRowStore());
+        Table columnarTable = format.read("marks", file, new ColumnarRowStore());
+
+        for (Table table : Arrays.asList(heapTable, pagedTable, offHeapTable, columnarTable)) {
+            table.updateRows("name", "'Simon'", "mark == 7");
+            table.deleteRows("mark > 90");
+            table.addColumn("pass");
+        }
+        assertEquals(heapTable.getRows(), pagedTable.getRows());
+        assertEquals(heapTable.getRows(), offHeapTable.getRows());
+        assertEquals(heapTable.getRows(), columnarTable.getRows());
+        assertEquals(heapTable.getColumnValues("name"), columnarTable.getColumnValues("name"));
+        pagedTable.close();
+        offHeapTable.close();
+    }
+
+    @Test
+    void testColumnarStoreInfersColumnTypes() throws IOException {
+        File file = tempDir.resolve("marks.tab").toFile();
+        Files.writeString(file.toPath(), "id\tmark\tscore\tpass\tcode\n"
+                + "1\t65\t1.5\tTRUE\t7\n2\tNULL\t-2.25\tFALSE\t007\n3\t-40\tNULL\tNULL\t12\n");
+        TabTableFormat format = new TabTableFormat();
+        Table heapTable = format.read("marks", file);
+        ColumnarRowStore store = new ColumnarRowStore();
+        Table columnarTable = format.read("marks", file, store);
+
+        assertEquals(ColumnType.INTEGER, store.columnType(1));
+        assertEquals(ColumnType.FLOAT, store.columnType(2));
+        assertEquals(ColumnType.BOOLEAN, store.columnType(3));
+        // "007" would not be written back the same way as a number
+        assertEquals(ColumnType.STRING, store.columnType(4));
+        assertEquals(heapTable.getRows(), columnarTable.getRows());
+        for (String condition : Arrays.asList("mark > 0", "mark <= 65", "score >= -2.25", "pass == TRUE", "code < 10")) {
+            assertEquals(heapTable.evaluateCondition(condition), columnarTable.evaluateCondition(condition));
+        }
+
+        for (Table table : Arrays.asList(heapTable, columnarTable)) {
+            table.updateRows("mark", "'high'", "id == 1");
+        }
+        assertEquals(ColumnType.STRING, store.columnType(1));
+        assertEquals(heapTable.getRows(), columnarTable.getRows());
+    }
+
+    @Test
+    void testColumnarStoreEncodesRepeatedStrings() throws IOException {
+        StringBuilder content = new StringBuilder("id\tname\tgrade\n");
+        for (int i = 1; i <= 1000; i++) {
+            content.append(i).append("\tstudent").append(i).append("\t").append("ABCDE".charAt(i % 5)).append("\n");
+        }
+        File file = tempDir.resolve("marks.tab").toFile();
+        Files.writeString(file.toPath(), content.toString());
+        TabTableFormat format = new TabTableFormat();
+        Table heapTable = format.read("marks", file);
+        ColumnarRowStore store = new ColumnarRowStore();
+        Table columnarTable = format.read("marks", file, store);
+
+        assertEquals(Arrays.asList("B", "C", "D", "E", "A"), store.dictionary(2));
+        for (Table table : Arrays.asList(heapTable, columnarTable)) {
+            table.updateRows("grade", "'F'", "name LIKE student1%");
+        }
+        for (String condition : Arrays.asList("grade == 'b'", "grade != 'F'", "grade < C", "name LIKE student99%",
+                "(grade == 'b') OR (grade == 'F')", "(grade != 'A') AND (name LIKE student9%)")) {
+            assertEquals(heapTable.evaluateCondition(condition), columnarTable.evaluateCondition(condition));
+        }
+    }
+
+    @Test
+    void testZoneMapsKeepMatchesAfterWrites() {
+        Table table = new Table("marks");
+        table.addColumn("mark");
+        for (int i = 1; i <= 10000; i++) {
+            table.addRow(new String[]{String.valueOf(i)});
+        }
+        assertEquals(10, table.evaluateCondition("mark > 9990").size());
+        // A row in the first block moves into the range after the statistics were built
+        table.updateRows("mark", "20000", "id == 5");
+        table.addRow(new String[]{"'high'"});
+        assertEquals(11, table.evaluateCondition("mark > 9990").size());
+        assertEquals(1, table.evaluateCondition("mark > 'a'").size());
+        table.updateRows("mark", "NULL", "mark < 4000");
+        assertEquals(0, table.evaluateCondition("mark < 3000").size());
+        assertEquals(1, table.evaluateCondition("mark == 4000").size());
+    }
+
+    @Test
+    void testOrderedIndexAnswersEquality() {
+        Table table = new Table("marks");
+        table.addColumn("mark");
+        for (String mark : new String[]{"65", "TRUE", "'Rob'", "1.0", "NULL", "-3", "'rob'", "1", "FALSE", "'Abc'"}) {
+            table.addRow(new String[]{mark});
+        }
+        assertTrue(table.createIndex("mark", "ORDERED"));
+
+        assertEquals(1, table.evaluateCondition("mark == 1").size());
+        assertEquals(2, table.evaluateCondition("mark == 'ROB'").size());
+        assertEquals(1, table.evaluateCondition("mark == true").size());
+        // Text never compares with a number
+        assertEquals(5, table.evaluateCondition("mark != 1").size());
+    }
+
+    @Test
+    void testDroppedColumnsArePurgedLater() {
+        Table table = new Table("marks");
+        for (String column : Arrays.asList("name", "mark", "pass")) {
+            table.addColumn(column);
+        }
+        table.addRow(new String[]{"'Simon'", "65", "TRUE"});
+        table.addRow(new String[]{"'Rob'", "35", "FALSE"});
+
+        table.dropColumn("mark");
+        assertFalse(table.needsColumnPurge());
+        table.dropColumn("pass");
+        // As many dropped columns as visible ones
+        assertTrue(table.needsColumnPurge());
+        table.addColumn("grade");
+        table.updateRows("grade", "'A'", "name == 'Simon'");
+        List<List<String>> expected = Arrays.asList(Arrays.asList("1", "Simon", "A"), Arrays.asList("2", "Rob", "NULL"));
+        assertEquals(expected, table.getRows());
+        table.purgeDroppedColumns();
+        assertFalse(table.needsColumnPurge());
+        assertEquals(expected, table.getRows());
+    }
+
+    @Test
+    void testLsmStoreMatchesHeapStore() throws IOException {
+        StringBuilder content = new StringBuilder("id\tname\tmark\n");
+        for (int i = 1; i <= 500; i++) {
+            content.append(i).append("\tstudent").append(i).append("\t").append(i % 100).append("\n");
+        }
+        File file = tempDir.resolve("marks.tab").toFile();
+        Files.writeString(file.toPath(), content.toString());
+        TabTableFormat format = new TabTableFormat();
+        Table heapTable = format.read("marks", file);
+        // A tiny memtable writes many segments, which get merged in the background
+        LsmRowStore store = new LsmRowStore(tempDir.toFile(), "marks", 16, true);
+        Table lsmTable = format.read("marks", file, store);
+
+        for (Table table : Arrays.asList(heapTable, lsmTable)) {
+            table.updateRows("name", "'Simon'", "mark == 7");
+            table.deleteRows("mark > 90");
+            table.addRow(new String[]{"'Rob'", "35"});
+            table.dropColumn("mark");
+        }
+        assertEquals(heapTable.getRows(), lsmTable.getRows());
+        assertTrue(store.getSegmentCount() > 0);
+        lsmTable.close();
+    }
+}